@@ -0,0 +1,53 @@
+package com.midinero.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    // Pool acotado para los listeners de eventos de dominio. Si la cola se llena,
+    // el hilo que publica ejecuta el handler (no se pierden avisos, solo se frena).
+    @Bean(name = "eventosExecutor")
+    public ThreadPoolTaskExecutor eventosExecutor(MeterRegistry meterRegistry,
+                                                  @Value("${eventos.executor.core-size:2}") int coreSize,
+                                                  @Value("${eventos.executor.max-size:4}") int maxSize,
+                                                  @Value("${eventos.executor.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("eventos-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+
+        // executor.queued, executor.active, executor.pool.size, ... con tag name=eventos
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "eventos", Tags.empty()).bindTo(meterRegistry);
+        return executor;
+    }
+
+    // Planificador propio para los envíos diferidos de avisos agrupados, separado del de las
+    // tareas @Scheduled (SchedulingConfig); hay varios TaskScheduler, así que se inyecta por nombre
+    @Bean(name = "notificacionesScheduler")
+    public ThreadPoolTaskScheduler notificacionesScheduler(@Value("${notificaciones.coalescencia.hilos:1}") int hilos) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(hilos);
+        scheduler.setThreadNamePrefix("notificaciones-");
+        scheduler.setRemoveOnCancelPolicy(true);
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(10);
+        return scheduler;
+    }
+}
@@ -0,0 +1,46 @@
+package com.midinero.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Publica http.consultas.sql: sentencias SQL por petición, etiquetadas por ruta y método.
+// Envuelve también la cadena de seguridad, así que incluye las consultas de autenticación.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ContadorConsultasFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    public ContadorConsultasFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ContadorConsultasSql.iniciar();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int consultas = ContadorConsultasSql.finalizar();
+            Object ruta = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("http.consultas.sql")
+                    .description("Sentencias SQL ejecutadas por petición")
+                    .tag("uri", ruta != null ? ruta.toString() : "SIN_RUTA")
+                    .tag("method", request.getMethod())
+                    .register(meterRegistry)
+                    .record(consultas);
+        }
+    }
+}
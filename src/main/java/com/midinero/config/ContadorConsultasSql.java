@@ -0,0 +1,40 @@
+package com.midinero.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Cuenta las sentencias SQL que Hibernate prepara en el hilo actual. ContadorConsultasFilter
+// abre y cierra el conteo alrededor de cada petición; fuera de una petición no cuenta nada.
+@Component
+public class ContadorConsultasSql implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final ThreadLocal<int[]> CONTADOR = new ThreadLocal<>();
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] contador = CONTADOR.get();
+        if (contador != null) {
+            contador[0]++;
+        }
+        return sql;
+    }
+
+    static void iniciar() {
+        CONTADOR.set(new int[1]);
+    }
+
+    static int finalizar() {
+        int[] contador = CONTADOR.get();
+        CONTADOR.remove();
+        return contador != null ? contador[0] : 0;
+    }
+}
@@ -0,0 +1,75 @@
+package com.midinero.config;
+
+import com.midinero.service.GastoMensualService;
+import com.midinero.service.SchedulerLockService;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+
+// gasto_mensual_categoria empieza vacía al desplegar la versión que la introduce: las transacciones
+// anteriores solo entran en ella con la reconstrucción. La carga inicial se hace una sola vez al arrancar,
+// bajo lease, y queda marcada en migraciones_datos. Los demás nodos esperan a la marca antes de quedar
+// listos, para no evaluar presupuestos sobre un acumulado a medias.
+@Component
+@Order(1)
+public class GastoMensualInitializer implements CommandLineRunner {
+
+    private static final String CARGA_INICIAL = "carga-inicial-gasto-mensual";
+    // También es lo máximo que espera un nodo que no obtuvo el lease
+    private static final Duration LEASE = Duration.ofHours(2);
+    private static final long ESPERA_ENTRE_INTENTOS_MS = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GastoMensualService gastoMensualService;
+    private final SchedulerLockService schedulerLockService;
+
+    public GastoMensualInitializer(JdbcTemplate jdbcTemplate,
+                                   GastoMensualService gastoMensualService,
+                                   SchedulerLockService schedulerLockService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.gastoMensualService = gastoMensualService;
+        this.schedulerLockService = schedulerLockService;
+    }
+
+    @Override
+    public void run(String... args) throws InterruptedException {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS migraciones_datos (" +
+                "nombre VARCHAR(64) NOT NULL PRIMARY KEY, aplicada_en DATETIME(3) NOT NULL)");
+
+        long limite = System.nanoTime() + LEASE.toNanos();
+        while (!aplicada()) {
+            boolean tomado = schedulerLockService.ejecutarConLease(CARGA_INICIAL, LEASE, Duration.ZERO, () -> {
+                // Otro nodo pudo completarla mientras este esperaba el lease
+                if (aplicada()) {
+                    return;
+                }
+                if (gastoMensualService.reconstruirTodos()) {
+                    jdbcTemplate.update("INSERT IGNORE INTO migraciones_datos (nombre, aplicada_en) VALUES (?, ?)",
+                            CARGA_INICIAL, new Timestamp(System.currentTimeMillis()));
+                }
+            });
+            if (tomado && !aplicada()) {
+                // Algún usuario falló; la reconstrucción semanal o el próximo arranque lo reintentan
+                System.err.println("La carga inicial del acumulado mensual quedó incompleta");
+                return;
+            }
+            if (System.nanoTime() > limite) {
+                System.err.println("Se agotó la espera de la carga inicial del acumulado mensual");
+                return;
+            }
+            if (!tomado) {
+                Thread.sleep(ESPERA_ENTRE_INTENTOS_MS);
+            }
+        }
+    }
+
+    private boolean aplicada() {
+        Integer filas = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM migraciones_datos WHERE nombre = ?", Integer.class, CARGA_INICIAL);
+        return filas != null && filas > 0;
+    }
+}
@@ -0,0 +1,57 @@
+package com.midinero.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Límites por grupo de rutas (rate-limit.grupos[n].*). Se aplica el primer grupo cuyo patrón coincide.
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean habilitado = true;
+
+    // Máximo de cubetas en memoria; las menos usadas se descartan al superarlo
+    private long maxClaves = 100000;
+
+    // Una cubeta sin uso durante este tiempo ya estaría llena: se puede descartar
+    private long inactividadSegundos = 600;
+
+    private List<Grupo> grupos = new ArrayList<>();
+
+    public static class Grupo {
+        private String nombre;
+        private List<String> patrones = new ArrayList<>();
+
+        // Ráfaga máxima permitida
+        private int capacidad;
+        private double recargaPorSegundo;
+
+        public String getNombre() { return nombre; }
+        public void setNombre(String nombre) { this.nombre = nombre; }
+
+        public List<String> getPatrones() { return patrones; }
+        public void setPatrones(List<String> patrones) { this.patrones = patrones; }
+
+        public int getCapacidad() { return capacidad; }
+        public void setCapacidad(int capacidad) { this.capacidad = capacidad; }
+
+        public double getRecargaPorSegundo() { return recargaPorSegundo; }
+        public void setRecargaPorSegundo(double recargaPorSegundo) { this.recargaPorSegundo = recargaPorSegundo; }
+    }
+
+    // Getters and Setters
+    public boolean isHabilitado() { return habilitado; }
+    public void setHabilitado(boolean habilitado) { this.habilitado = habilitado; }
+
+    public long getMaxClaves() { return maxClaves; }
+    public void setMaxClaves(long maxClaves) { this.maxClaves = maxClaves; }
+
+    public long getInactividadSegundos() { return inactividadSegundos; }
+    public void setInactividadSegundos(long inactividadSegundos) { this.inactividadSegundos = inactividadSegundos; }
+
+    public List<Grupo> getGrupos() { return grupos; }
+    public void setGrupos(List<Grupo> grupos) { this.grupos = grupos; }
+}
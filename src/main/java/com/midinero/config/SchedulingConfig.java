@@ -0,0 +1,47 @@
+package com.midinero.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+// Pool de las tareas @Scheduled. Hay otros TaskScheduler en el contexto (broker STOMP, SockJS,
+// notificaciones) y ninguno se elegiría solo: sin esto Spring usaría un único hilo local y una
+// tarea larga (reconstrucción del acumulado, limpiezas) frenaría la bandeja y la sincronización
+// de tokens revocados.
+@Configuration
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    private final MeterRegistry meterRegistry;
+    private final int hilos;
+
+    public SchedulingConfig(MeterRegistry meterRegistry, @Value("${programacion.hilos:6}") int hilos) {
+        this.meterRegistry = meterRegistry;
+        this.hilos = hilos;
+    }
+
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(hilos);
+        scheduler.setThreadNamePrefix("programadas-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        return scheduler;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        // Devuelve el singleton ya inicializado (la clase @Configuration está proxificada)
+        ThreadPoolTaskScheduler scheduler = taskScheduler();
+        registrar.setTaskScheduler(scheduler);
+
+        // executor.queued, executor.active, ... con tag name=programadas
+        new ExecutorServiceMetrics(scheduler.getScheduledExecutor(), "programadas", Tags.empty()).bindTo(meterRegistry);
+    }
+}
@@ -0,0 +1,53 @@
+package com.midinero.config;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Las transacciones pasaron de IDENTITY a una secuencia (tabla transacciones_seq en MySQL).
+// Al arrancar se adelanta la secuencia por encima del mayor id existente para no repetir claves.
+//
+// Durante un despliegue escalonado las réplicas anteriores siguen insertando con AUTO_INCREMENT.
+// Sin separar rangos chocarían: InnoDB sube el contador al mayor id insertado, que puede caer dentro
+// de un bloque que otra réplica nueva ya reservó de la secuencia. Por eso el AUTO_INCREMENT se sube
+// a FRONTERA_AUTO_INCREMENT, muy por encima de lo que la secuencia llegará a repartir: la secuencia
+// reparte por debajo (y al insertar por debajo no mueve el contador) y las réplicas antiguas por encima.
+@Component
+@Order(0)
+public class SecuenciasInitializer implements CommandLineRunner {
+
+    // Debe coincidir con allocationSize de Transaccion
+    private static final int TAMANIO_BLOQUE = 50;
+
+    // Ids a partir de aquí son de réplicas anteriores a la secuencia; la secuencia no los tiene en cuenta
+    private static final long FRONTERA_AUTO_INCREMENT = 1_000_000_000_000L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SecuenciasInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(String... args) {
+        jdbcTemplate.update(
+                "UPDATE transacciones_seq SET next_val = GREATEST(next_val, " +
+                "(SELECT COALESCE(MAX(id), 0) FROM transacciones WHERE id < ?) + ? + 1)",
+                FRONTERA_AUTO_INCREMENT, TAMANIO_BLOQUE);
+
+        // Solo las bases creadas antes de la secuencia conservan AUTO_INCREMENT en la columna id.
+        // Si el contador ya está por encima, MySQL ignora el valor; el cambio es solo de metadatos.
+        if (tieneAutoIncrement()) {
+            jdbcTemplate.execute("ALTER TABLE transacciones AUTO_INCREMENT = " + FRONTERA_AUTO_INCREMENT);
+        }
+    }
+
+    private boolean tieneAutoIncrement() {
+        Integer columnas = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() " +
+                "AND table_name = 'transacciones' AND column_name = 'id' AND extra LIKE '%auto_increment%'",
+                Integer.class);
+        return columnas != null && columnas > 0;
+    }
+}
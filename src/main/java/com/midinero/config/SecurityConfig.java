@@ -1,10 +1,19 @@
 package com.midinero.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.midinero.security.JwtAuthenticationEntryPoint;
 import com.midinero.security.JwtAuthenticationFilter;
+import com.midinero.security.PasswordEncoderAcotado;
+import com.midinero.security.RateLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -20,6 +29,7 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.Arrays;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableWebSecurity
@@ -32,9 +42,39 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private RateLimitProperties rateLimitProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Qualifier("passwordHashExecutor") ThreadPoolTaskExecutor passwordHashExecutor,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${password.hash.espera-maxima-ms:5000}") long esperaMaximaMs) {
+        return new PasswordEncoderAcotado(new BCryptPasswordEncoder(), passwordHashExecutor, esperaMaximaMs, meterRegistry);
+    }
+
+    // BCrypt es CPU puro: tantos hilos como núcleos y una cola corta. Si se llena, se rechaza (503)
+    // en lugar de acumular logins que ocupen todos los hilos de Tomcat.
+    @Bean(name = "passwordHashExecutor")
+    public ThreadPoolTaskExecutor passwordHashExecutor(MeterRegistry meterRegistry,
+                                                       @Value("${password.hash.hilos:0}") int hilos,
+                                                       @Value("${password.hash.queue-capacity:64}") int queueCapacity) {
+        int tamanio = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(tamanio);
+        executor.setMaxPoolSize(tamanio);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hash-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "password-hash", Tags.empty()).bindTo(meterRegistry);
+        return executor;
     }
 
     @Bean
@@ -62,6 +102,7 @@ public class SecurityConfig {
                 );
 
         http.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+        http.addFilterAfter(new RateLimitFilter(rateLimitProperties, objectMapper, meterRegistry), JwtAuthenticationFilter.class);
 
         return http.build();
     }
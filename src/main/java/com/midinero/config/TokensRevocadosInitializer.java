@@ -0,0 +1,117 @@
+package com.midinero.config;
+
+import com.midinero.security.JwtTokenProvider;
+import com.midinero.security.TokensRevocadosCache;
+import com.midinero.service.SchedulerLockService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// La lista negra pasó de tokens_blacklist (JWT completo, VARCHAR(1000) único) a tokens_revocados
+// (huella SHA-256 + exp). Mientras la tabla antigua exista, sus filas vigentes se copian al arrancar
+// y luego periódicamente, porque durante un despliegue escalonado las réplicas de la versión anterior
+// siguen revocando en ella. La copia es idempotente (INSERT IGNORE) y la hace un solo nodo a la vez.
+// La tabla antigua no se elimina aquí salvo que se active tokens-revocados.migracion.eliminar-tabla-antigua,
+// paso explícito para una versión posterior, cuando ya no quede ninguna réplica antigua.
+@Component
+@Order(0)
+public class TokensRevocadosInitializer implements CommandLineRunner {
+
+    private static final String TABLA_ANTIGUA = "tokens_blacklist";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JwtTokenProvider tokenProvider;
+    private final SchedulerLockService schedulerLockService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean eliminarTablaAntigua;
+
+    // Se apaga en cuanto se comprueba que la tabla antigua ya no existe
+    private volatile boolean tablaAntiguaPresente = true;
+
+    public TokensRevocadosInitializer(JdbcTemplate jdbcTemplate,
+                                      JwtTokenProvider tokenProvider,
+                                      SchedulerLockService schedulerLockService,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${tokens-revocados.migracion.eliminar-tabla-antigua:false}") boolean eliminarTablaAntigua) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tokenProvider = tokenProvider;
+        this.schedulerLockService = schedulerLockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eliminarTablaAntigua = eliminarTablaAntigua;
+    }
+
+    @Override
+    public void run(String... args) {
+        migrar();
+    }
+
+    @Scheduled(fixedDelayString = "${tokens-revocados.migracion.intervalo-ms:300000}",
+               initialDelayString = "${tokens-revocados.migracion.intervalo-ms:300000}")
+    public void migrar() {
+        if (!tablaAntiguaPresente) {
+            return;
+        }
+        schedulerLockService.ejecutarConLease("migrar-tokens-blacklist", Duration.ofMinutes(5), Duration.ZERO, () -> {
+            try {
+                copiarTablaAntigua();
+            } catch (DataAccessException e) {
+                // Otro nodo pudo eliminarla entre la comprobación y la lectura; se reintenta en la próxima pasada
+                System.err.println("Error al migrar los tokens revocados desde " + TABLA_ANTIGUA + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private void copiarTablaAntigua() {
+        if (!existeTablaAntigua()) {
+            tablaAntiguaPresente = false;
+            return;
+        }
+
+        long ahora = System.currentTimeMillis();
+        // fecha_bloqueo = ahora para que las cachés de los demás nodos la tomen en su próxima sincronización
+        Timestamp copiadoEn = new Timestamp(ahora);
+        List<Object[]> filas = new ArrayList<>();
+        jdbcTemplate.query("SELECT token FROM " + TABLA_ANTIGUA, rs -> {
+            String token = rs.getString("token");
+            Date expiracion = tokenProvider.getExpiracion(token);
+            // Los tokens inválidos o ya expirados no hace falta conservarlos
+            if (expiracion != null && expiracion.getTime() > ahora) {
+                filas.add(new Object[] {
+                        TokensRevocadosCache.huella(token),
+                        new Timestamp(expiracion.getTime()),
+                        copiadoEn
+                });
+            }
+        });
+
+        if (!filas.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                    "INSERT IGNORE INTO tokens_revocados (token_hash, fecha_expiracion, fecha_bloqueo) VALUES (?, ?, ?)",
+                    filas));
+        }
+
+        if (eliminarTablaAntigua) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLA_ANTIGUA);
+            tablaAntiguaPresente = false;
+        }
+    }
+
+    private boolean existeTablaAntigua() {
+        Integer existe = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?",
+                Integer.class, TABLA_ANTIGUA);
+        return existe != null && existe > 0;
+    }
+}
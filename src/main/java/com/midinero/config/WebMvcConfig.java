@@ -0,0 +1,47 @@
+package com.midinero.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${web.streaming.max-size:8}")
+    private int maxSize;
+
+    @Value("${web.streaming.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${web.streaming.timeout-ms:600000}")
+    private long timeoutMs;
+
+    // Pool acotado para las respuestas en streaming (exportaciones), en lugar del executor sin límite por defecto
+    @Bean(name = "streamingExecutor")
+    public ThreadPoolTaskExecutor streamingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.min(2, maxSize));
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("streaming-");
+        executor.initialize();
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "streaming", Tags.empty()).bindTo(meterRegistry);
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingExecutor());
+        configurer.setDefaultTimeout(timeoutMs);
+    }
+}
@@ -0,0 +1,50 @@
+package com.midinero.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+// Equivale a @EnableWebSocketMessageBroker (aplica los WebSocketMessageBrokerConfigurer, como WebSocketConfig),
+// pero reemplaza el SubProtocolWebSocketHandler para elegir qué hacer con un cliente que no lee a tiempo.
+// Spring envuelve cada sesión en un ConcurrentWebSocketSessionDecorator fijo en TERMINATE; aquí ese
+// mismo decorador (el único) se crea con la estrategia configurada.
+@Configuration
+public class WebSocketBrokerConfig extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    // TERMINATE cierra la sesión del cliente lento; DROP descarta sus mensajes más viejos y la mantiene.
+    // Con ambas, superar el tiempo máximo de envío cierra la sesión.
+    @Value("${websocket.consumidor-lento.estrategia:TERMINATE}")
+    private ConcurrentWebSocketSessionDecorator.OverflowStrategy estrategiaConsumidorLento;
+
+    @Override
+    @Bean
+    public WebSocketHandler subProtocolWebSocketHandler(AbstractSubscribableChannel clientInboundChannel,
+                                                        AbstractSubscribableChannel clientOutboundChannel) {
+        return new ManejadorSubProtocolo(clientInboundChannel, clientOutboundChannel, estrategiaConsumidorLento);
+    }
+
+    static class ManejadorSubProtocolo extends SubProtocolWebSocketHandler {
+
+        private final ConcurrentWebSocketSessionDecorator.OverflowStrategy estrategia;
+
+        ManejadorSubProtocolo(MessageChannel clientInboundChannel, SubscribableChannel clientOutboundChannel,
+                              ConcurrentWebSocketSessionDecorator.OverflowStrategy estrategia) {
+            super(clientInboundChannel, clientOutboundChannel);
+            this.estrategia = estrategia;
+        }
+
+        // Los límites vienen de configureWebSocketTransport (WebSocketConfig)
+        @Override
+        protected WebSocketSession decorateSession(WebSocketSession session) {
+            return new ConcurrentWebSocketSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit(), estrategia);
+        }
+    }
+}
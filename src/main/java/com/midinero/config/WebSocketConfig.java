@@ -1,20 +1,107 @@
 package com.midinero.config;
 
+import com.midinero.security.StompAutenticacionInterceptor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// La infraestructura del broker la registra WebSocketBrokerConfig (en lugar de @EnableWebSocketMessageBroker),
+// que recoge esta configuración y aplica la estrategia ante consumidores lentos
 @Configuration
-@EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private StompAutenticacionInterceptor stompAutenticacionInterceptor;
+
+    @Value("${websocket.inbound.core-size:4}")
+    private int inboundCoreSize;
+
+    @Value("${websocket.inbound.max-size:8}")
+    private int inboundMaxSize;
+
+    @Value("${websocket.inbound.queue-capacity:1000}")
+    private int inboundQueueCapacity;
+
+    @Value("${websocket.outbound.core-size:4}")
+    private int outboundCoreSize;
+
+    @Value("${websocket.outbound.max-size:8}")
+    private int outboundMaxSize;
+
+    @Value("${websocket.outbound.queue-capacity:1000}")
+    private int outboundQueueCapacity;
+
+    @Value("${websocket.transporte.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.transporte.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.transporte.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    // Relay hacia un broker STOMP externo (RabbitMQ, ActiveMQ...) compartido por todos los nodos
+    @Value("${websocket.broker.relay.habilitado:false}")
+    private boolean relayHabilitado;
+
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${websocket.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/user");
+        // Los envíos a /user/{id}/queue/... se resuelven a /queue/...-user{sesión}, que atiende el broker
+        if (relayHabilitado) {
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/queue", "/topic")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    // Un envío a un usuario conectado en otro nodo se reenvía por el broker a ese nodo,
+                    // y cada nodo difunde sus sesiones para que el registro de usuarios sea global.
+                    // Van bajo /topic/sistema. solo entre nodos: StompAutenticacionInterceptor no deja que
+                    // un cliente se suscriba ni envíe fuera de /user/** y /app/**
+                    .setUserDestinationBroadcast("/topic/sistema.usuarios-no-resueltos")
+                    .setUserRegistryBroadcast("/topic/sistema.registro-usuarios");
+            if (!relayVirtualHost.isEmpty()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            config.enableSimpleBroker("/queue");
+        }
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
+        // Con varios hilos de salida, mantiene el orden de los mensajes de cada sesión
+        config.setPreservePublishOrder(true);
     }
 
     @Override
@@ -23,4 +110,60 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+
+    // Colas acotadas en ambos canales: si se llenan, el mensaje se rechaza en lugar de acumular memoria
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAutenticacionInterceptor);
+        registration.taskExecutor()
+                .corePoolSize(inboundCoreSize)
+                .maxPoolSize(inboundMaxSize)
+                .queueCapacity(inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundCoreSize)
+                .maxPoolSize(outboundMaxSize)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
+    // Cada sesión tiene un tope de tiempo de envío y de bytes en espera; superarlo aplica
+    // websocket.consumidor-lento.estrategia (ver WebSocketBrokerConfig)
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs);
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit);
+        registration.setMessageSizeLimit(messageSizeLimit);
+    }
+
+    // executor.queued, executor.active, ... con tag name=websocket-entrada / websocket-salida, y
+    // websocket.canal.rechazados: mensajes descartados por cola llena (p. ej. un fan-out a más sesiones
+    // que queue-capacity + max-size de salida a la vez)
+    @EventListener(ApplicationReadyEvent.class)
+    public void registrarMetricas(ApplicationReadyEvent event) {
+        MeterRegistry meterRegistry = event.getApplicationContext().getBean(MeterRegistry.class);
+        ThreadPoolTaskExecutor entrada = event.getApplicationContext()
+                .getBean("clientInboundChannelExecutor", ThreadPoolTaskExecutor.class);
+        ThreadPoolTaskExecutor salida = event.getApplicationContext()
+                .getBean("clientOutboundChannelExecutor", ThreadPoolTaskExecutor.class);
+        new ExecutorServiceMetrics(entrada.getThreadPoolExecutor(), "websocket-entrada", Tags.empty()).bindTo(meterRegistry);
+        new ExecutorServiceMetrics(salida.getThreadPoolExecutor(), "websocket-salida", Tags.empty()).bindTo(meterRegistry);
+        contarRechazos(entrada.getThreadPoolExecutor(), "entrada", meterRegistry);
+        contarRechazos(salida.getThreadPoolExecutor(), "salida", meterRegistry);
+    }
+
+    // Mantiene la política existente (el envío falla) y solo añade el conteo
+    private static void contarRechazos(ThreadPoolExecutor pool, String canal, MeterRegistry meterRegistry) {
+        Counter rechazados = Counter.builder("websocket.canal.rechazados")
+                .description("Mensajes STOMP rechazados por cola llena en el canal")
+                .tag("canal", canal)
+                .register(meterRegistry);
+        RejectedExecutionHandler original = pool.getRejectedExecutionHandler();
+        pool.setRejectedExecutionHandler((tarea, executor) -> {
+            rechazados.increment();
+            original.rejectedExecution(tarea, executor);
+        });
+    }
 }
@@ -3,6 +3,7 @@ package com.midinero.controller;
 
 import com.midinero.dto.ApiResponse;
 import com.midinero.dto.MetaAhorroDTO;
+import com.midinero.service.IdempotenciaService;
 import com.midinero.service.MetaAhorroService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +20,9 @@ public class MetaAhorroController {
     @Autowired
     private MetaAhorroService metaAhorroService;
 
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
     @GetMapping
     public ResponseEntity<ApiResponse<List<MetaAhorroDTO>>> obtenerMetas() {
         ApiResponse<List<MetaAhorroDTO>> response = metaAhorroService.obtenerMetas();
@@ -34,8 +38,11 @@ public class MetaAhorroController {
      @PostMapping("/{id}/abonar")
     public ResponseEntity<ApiResponse<MetaAhorroDTO>> abonarMeta(
             @PathVariable Long id,
-            @RequestParam("monto") Double monto) {
-        ApiResponse<MetaAhorroDTO> response = metaAhorroService.abonarMeta(id, monto);
+            @RequestParam("monto") Double monto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ApiResponse<MetaAhorroDTO> response = idempotenciaService.ejecutar(
+                idempotencyKey, "ABONAR_META", null, MetaAhorroDTO.class,
+                () -> metaAhorroService.abonarMeta(id, monto));
         if (response.isSuccess()) {
             return ResponseEntity.ok(response);
         } else {
@@ -0,0 +1,36 @@
+package com.midinero.controller;
+
+import com.midinero.dto.ApiResponse;
+import com.midinero.dto.NotificacionDTO;
+import com.midinero.dto.PaginaDTO;
+import com.midinero.service.NotificacionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/notificaciones")
+public class NotificacionController {
+
+    @Autowired
+    private NotificacionService notificacionService;
+
+    // Al reconectar: GET sin since y luego seguir nextCursor hasta hasMore=false. El cursor solo sirve
+    // para recorrer esa lectura: los ids no están ordenados por llegada entre réplicas, así que un cliente
+    // no debe guardarlo para retomar más tarde, sino empezar de nuevo sin since (las no leídas siguen ahí)
+    @GetMapping
+    public ResponseEntity<ApiResponse<PaginaDTO<NotificacionDTO>>> obtenerNoLeidas(
+            @RequestParam(value = "since", required = false) Long since,
+            @RequestParam(value = "size", required = false) Integer size) {
+        ApiResponse<PaginaDTO<NotificacionDTO>> response = notificacionService.obtenerNoLeidas(since, size);
+        return ResponseEntity.ok(response);
+    }
+
+    @PutMapping("/leidas")
+    public ResponseEntity<ApiResponse<Integer>> marcarLeidas(@RequestBody List<Long> ids) {
+        ApiResponse<Integer> response = notificacionService.marcarLeidas(ids);
+        return response.isSuccess() ? ResponseEntity.ok(response) : ResponseEntity.badRequest().body(response);
+    }
+}
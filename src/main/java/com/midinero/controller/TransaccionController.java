@@ -1,14 +1,24 @@
 package com.midinero.controller;
 
 import com.midinero.dto.ApiResponse;
+import com.midinero.dto.FiltroTransaccionDTO;
+import com.midinero.dto.PaginaDTO;
+import com.midinero.dto.ResultadoImportacionDTO;
 import com.midinero.dto.TransaccionDTO;
+import com.midinero.service.ExportacionTransaccionService;
+import com.midinero.service.IdempotenciaService;
+import com.midinero.service.ImportacionTransaccionService;
 import com.midinero.service.TransaccionService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/api/transacciones")
@@ -17,15 +27,61 @@ public class TransaccionController {
     @Autowired
     private TransaccionService transaccionService;
 
+    @Autowired
+    private ImportacionTransaccionService importacionTransaccionService;
+
+    @Autowired
+    private ExportacionTransaccionService exportacionTransaccionService;
+
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
     @GetMapping
-    public ResponseEntity<ApiResponse<List<TransaccionDTO>>> obtenerTransacciones() {
-        ApiResponse<List<TransaccionDTO>> response = transaccionService.obtenerTransacciones();
+    public ResponseEntity<ApiResponse<PaginaDTO<TransaccionDTO>>> obtenerTransacciones(
+            FiltroTransaccionDTO filtro,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        ApiResponse<PaginaDTO<TransaccionDTO>> response = transaccionService.obtenerTransacciones(filtro, cursor, size);
         return ResponseEntity.ok(response);
     }
 
     @PostMapping
-    public ResponseEntity<ApiResponse<TransaccionDTO>> crearTransaccion(@Valid @RequestBody TransaccionDTO transaccionDTO) {
-        ApiResponse<TransaccionDTO> response = transaccionService.crearTransaccion(transaccionDTO);
+    public ResponseEntity<ApiResponse<TransaccionDTO>> crearTransaccion(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody TransaccionDTO transaccionDTO) {
+        ApiResponse<TransaccionDTO> response = idempotenciaService.ejecutar(
+                idempotencyKey, "CREAR_TRANSACCION", transaccionDTO, TransaccionDTO.class,
+                () -> transaccionService.crearTransaccion(transaccionDTO));
+        return ResponseEntity.ok(response);
+    }
+
+    // Historial completo escrito fila a fila en la respuesta (formato=csv|ndjson, gzip opcional)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportarTransacciones(
+            @RequestParam(value = "formato", defaultValue = "csv") String formato,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(formato);
+        StreamingResponseBody body = exportacionTransaccionService.exportar(
+                ndjson ? ExportacionTransaccionService.Formato.NDJSON : ExportacionTransaccionService.Formato.CSV, gzip);
+
+        // Con gzip se entrega un archivo .gz (application/gzip) y no se usa Content-Encoding: con ambos
+        // el cliente descomprime al recibir y guarda texto plano con nombre .gz
+        String archivo = ndjson ? "transacciones.ndjson" : "transacciones.csv";
+        MediaType tipo = ndjson ? MediaType.parseMediaType("application/x-ndjson") : MediaType.parseMediaType("text/csv");
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : tipo)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archivo + (gzip ? ".gz" : "") + "\"")
+                .body(body);
+    }
+
+    // El cuerpo se lee en streaming: no se carga el archivo completo en memoria
+    @PostMapping(value = "/import", consumes = { "text/csv", "application/x-ndjson" })
+    public ResponseEntity<ApiResponse<ResultadoImportacionDTO>> importarTransacciones(HttpServletRequest request) throws IOException {
+        ImportacionTransaccionService.Formato formato = request.getContentType().startsWith("text/csv")
+                ? ImportacionTransaccionService.Formato.CSV
+                : ImportacionTransaccionService.Formato.NDJSON;
+        ApiResponse<ResultadoImportacionDTO> response =
+                importacionTransaccionService.importar(request.getInputStream(), formato);
         return ResponseEntity.ok(response);
     }
 
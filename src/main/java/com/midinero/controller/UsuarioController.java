@@ -5,14 +5,11 @@ import com.midinero.dto.CambiarPasswordDTO;
 import com.midinero.dto.UpdateUsuarioDTO;
 import com.midinero.dto.UsuarioResponseDTO;
 import com.midinero.entity.Usuario;
-import com.midinero.repository.UsuarioRepository;
-import com.midinero.security.UserPrincipal;
+import com.midinero.security.UsuarioAutenticadoContext;
 import com.midinero.service.UsuarioService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -25,7 +22,7 @@ public class UsuarioController {
     private UsuarioService usuarioService;
 
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private UsuarioAutenticadoContext usuarioAutenticado;
 
     // ===== Perfil =====
     @GetMapping("/me")
@@ -60,11 +57,7 @@ public class UsuarioController {
     @GetMapping("/me/balance")
     public ResponseEntity<ApiResponse<Map<String, Object>>> obtenerSaldo() {
         try {
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            UserPrincipal principal = (UserPrincipal) auth.getPrincipal();
-
-            Usuario u = usuarioRepository.findById(principal.getId())
-                    .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+            Usuario u = usuarioAutenticado.getUsuario();
 
             Double saldo = (u.getSaldo() == null) ? 0.0 : u.getSaldo();
 
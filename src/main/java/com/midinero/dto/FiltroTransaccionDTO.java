@@ -0,0 +1,36 @@
+package com.midinero.dto;
+
+import com.midinero.entity.Transaccion;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+// Parámetros opcionales de consulta para filtrar el historial de transacciones
+public class FiltroTransaccionDTO {
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate desde;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate hasta;
+
+    private Transaccion.TipoTransaccion tipo;
+    private String categoria;
+    private Boolean incluirAnuladas = false;
+
+    public FiltroTransaccionDTO() {}
+
+    public LocalDate getDesde() { return desde; }
+    public void setDesde(LocalDate desde) { this.desde = desde; }
+
+    public LocalDate getHasta() { return hasta; }
+    public void setHasta(LocalDate hasta) { this.hasta = hasta; }
+
+    public Transaccion.TipoTransaccion getTipo() { return tipo; }
+    public void setTipo(Transaccion.TipoTransaccion tipo) { this.tipo = tipo; }
+
+    public String getCategoria() { return categoria; }
+    public void setCategoria(String categoria) { this.categoria = categoria; }
+
+    public Boolean getIncluirAnuladas() { return incluirAnuladas; }
+    public void setIncluirAnuladas(Boolean incluirAnuladas) { this.incluirAnuladas = incluirAnuladas; }
+}
@@ -0,0 +1,44 @@
+package com.midinero.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.LocalDateTime;
+
+public class NotificacionDTO {
+    private Long id;
+    private String tipo;
+    private String titulo;
+    private String mensaje;
+
+    // JSON ya serializado al guardar; se devuelve tal cual, sin volver a parsearlo
+    @JsonRawValue
+    private String datos;
+
+    private Boolean leida;
+    private LocalDateTime fecha;
+
+    // Constructors
+    public NotificacionDTO() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getTipo() { return tipo; }
+    public void setTipo(String tipo) { this.tipo = tipo; }
+
+    public String getTitulo() { return titulo; }
+    public void setTitulo(String titulo) { this.titulo = titulo; }
+
+    public String getMensaje() { return mensaje; }
+    public void setMensaje(String mensaje) { this.mensaje = mensaje; }
+
+    public String getDatos() { return datos; }
+    public void setDatos(String datos) { this.datos = datos; }
+
+    public Boolean getLeida() { return leida; }
+    public void setLeida(Boolean leida) { this.leida = leida; }
+
+    public LocalDateTime getFecha() { return fecha; }
+    public void setFecha(LocalDateTime fecha) { this.fecha = fecha; }
+}
@@ -0,0 +1,30 @@
+package com.midinero.dto;
+
+import java.util.List;
+
+public class PaginaDTO<T> {
+    private List<T> items;
+
+    // Cursor opaco para pedir la siguiente página; null cuando no hay más resultados
+    private String nextCursor;
+    private boolean hasMore;
+
+    // Constructors
+    public PaginaDTO() {}
+
+    public PaginaDTO(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
+    // Getters and Setters
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
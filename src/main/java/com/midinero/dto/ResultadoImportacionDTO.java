@@ -0,0 +1,41 @@
+package com.midinero.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ResultadoImportacionDTO {
+    private long aceptadas;
+    private long rechazadas;
+
+    // Detalle de las primeras filas rechazadas (acotado para no crecer con el archivo)
+    private List<ErrorFila> errores = new ArrayList<>();
+
+    public ResultadoImportacionDTO() {}
+
+    public long getAceptadas() { return aceptadas; }
+    public void setAceptadas(long aceptadas) { this.aceptadas = aceptadas; }
+
+    public long getRechazadas() { return rechazadas; }
+    public void setRechazadas(long rechazadas) { this.rechazadas = rechazadas; }
+
+    public List<ErrorFila> getErrores() { return errores; }
+    public void setErrores(List<ErrorFila> errores) { this.errores = errores; }
+
+    public static class ErrorFila {
+        private long linea;
+        private String motivo;
+
+        public ErrorFila() {}
+
+        public ErrorFila(long linea, String motivo) {
+            this.linea = linea;
+            this.motivo = motivo;
+        }
+
+        public long getLinea() { return linea; }
+        public void setLinea(long linea) { this.linea = linea; }
+
+        public String getMotivo() { return motivo; }
+        public void setMotivo(String motivo) { this.motivo = motivo; }
+    }
+}
@@ -0,0 +1,71 @@
+package com.midinero.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Respuesta registrada para una Idempotency-Key; respuesta es null mientras la operación está en curso
+@Entity
+@Table(name = "claves_idempotencia", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_claves_idempotencia", columnNames = {"usuario_id", "clave"})
+}, indexes = {
+    @Index(name = "idx_claves_idempotencia_fecha", columnList = "fecha_creacion")
+})
+public class ClaveIdempotencia {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "usuario_id", nullable = false)
+    private Long usuarioId;
+
+    @Column(nullable = false, length = 100)
+    private String clave;
+
+    @Column(nullable = false, length = 50)
+    private String operacion;
+
+    // SHA-256 de método, ruta y cuerpo de la petición original; null en claves anteriores a la columna
+    @Column(length = 64)
+    private String huella;
+
+    @Column(columnDefinition = "TEXT")
+    private String respuesta;
+
+    @CreationTimestamp
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    // Constructors
+    public ClaveIdempotencia() {}
+
+    public ClaveIdempotencia(Long usuarioId, String clave, String operacion, String huella) {
+        this.usuarioId = usuarioId;
+        this.clave = clave;
+        this.operacion = operacion;
+        this.huella = huella;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUsuarioId() { return usuarioId; }
+    public void setUsuarioId(Long usuarioId) { this.usuarioId = usuarioId; }
+
+    public String getClave() { return clave; }
+    public void setClave(String clave) { this.clave = clave; }
+
+    public String getOperacion() { return operacion; }
+    public void setOperacion(String operacion) { this.operacion = operacion; }
+
+    public String getHuella() { return huella; }
+    public void setHuella(String huella) { this.huella = huella; }
+
+    public String getRespuesta() { return respuesta; }
+    public void setRespuesta(String respuesta) { this.respuesta = respuesta; }
+
+    public LocalDateTime getFechaCreacion() { return fechaCreacion; }
+    public void setFechaCreacion(LocalDateTime fechaCreacion) { this.fechaCreacion = fechaCreacion; }
+}
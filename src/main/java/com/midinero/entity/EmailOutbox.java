@@ -0,0 +1,92 @@
+package com.midinero.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Email pendiente de envío. Se escribe en la misma transacción que la operación que lo origina
+// y lo envía en segundo plano EmailService; al enviarse correctamente la fila se elimina.
+@Entity
+@Table(name = "email_outbox", indexes = {
+    @Index(name = "idx_email_outbox_pendientes", columnList = "estado, proximo_intento")
+})
+public class EmailOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String destinatario;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private Plantilla plantilla;
+
+    // Valor que se inserta en la plantilla (p. ej. el token de recuperación)
+    @Column(length = 255)
+    private String parametro;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EstadoEmail estado = EstadoEmail.PENDIENTE;
+
+    @Column(nullable = false)
+    private Integer intentos = 0;
+
+    @Column(name = "proximo_intento", nullable = false)
+    private LocalDateTime proximoIntento;
+
+    @Column(name = "ultimo_error", length = 500)
+    private String ultimoError;
+
+    @CreationTimestamp
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    public enum Plantilla {
+        RECUPERACION_PASSWORD
+    }
+
+    public enum EstadoEmail {
+        PENDIENTE, FALLIDO
+    }
+
+    // Constructors
+    public EmailOutbox() {}
+
+    public EmailOutbox(String destinatario, Plantilla plantilla, String parametro) {
+        this.destinatario = destinatario;
+        this.plantilla = plantilla;
+        this.parametro = parametro;
+        this.proximoIntento = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getDestinatario() { return destinatario; }
+    public void setDestinatario(String destinatario) { this.destinatario = destinatario; }
+
+    public Plantilla getPlantilla() { return plantilla; }
+    public void setPlantilla(Plantilla plantilla) { this.plantilla = plantilla; }
+
+    public String getParametro() { return parametro; }
+    public void setParametro(String parametro) { this.parametro = parametro; }
+
+    public EstadoEmail getEstado() { return estado; }
+    public void setEstado(EstadoEmail estado) { this.estado = estado; }
+
+    public Integer getIntentos() { return intentos; }
+    public void setIntentos(Integer intentos) { this.intentos = intentos; }
+
+    public LocalDateTime getProximoIntento() { return proximoIntento; }
+    public void setProximoIntento(LocalDateTime proximoIntento) { this.proximoIntento = proximoIntento; }
+
+    public String getUltimoError() { return ultimoError; }
+    public void setUltimoError(String ultimoError) { this.ultimoError = ultimoError; }
+
+    public LocalDateTime getFechaCreacion() { return fechaCreacion; }
+    public void setFechaCreacion(LocalDateTime fechaCreacion) { this.fechaCreacion = fechaCreacion; }
+}
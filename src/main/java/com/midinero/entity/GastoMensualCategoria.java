@@ -0,0 +1,60 @@
+package com.midinero.entity;
+
+import jakarta.persistence.*;
+
+// Acumulado mensual por categoría y tipo, mantenido incrementalmente al registrar,
+// editar o anular transacciones. Evita sumar el historial completo en cada consulta.
+@Entity
+@Table(name = "gasto_mensual_categoria", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_gasto_mensual_categoria", columnNames = {"usuario_id", "mes", "categoria", "tipo"})
+})
+public class GastoMensualCategoria {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "usuario_id", nullable = false)
+    private Usuario usuario;
+
+    @Column(nullable = false, length = 7)
+    private String mes; // Formato: "2024-01"
+
+    @Column(nullable = false)
+    private String categoria;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Transaccion.TipoTransaccion tipo;
+
+    @Column(nullable = false)
+    private Double total = 0.0;
+
+    @Column(nullable = false)
+    private Long cantidad = 0L;
+
+    // Constructors
+    public GastoMensualCategoria() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Usuario getUsuario() { return usuario; }
+    public void setUsuario(Usuario usuario) { this.usuario = usuario; }
+
+    public String getMes() { return mes; }
+    public void setMes(String mes) { this.mes = mes; }
+
+    public String getCategoria() { return categoria; }
+    public void setCategoria(String categoria) { this.categoria = categoria; }
+
+    public Transaccion.TipoTransaccion getTipo() { return tipo; }
+    public void setTipo(Transaccion.TipoTransaccion tipo) { this.tipo = tipo; }
+
+    public Double getTotal() { return total; }
+    public void setTotal(Double total) { this.total = total; }
+
+    public Long getCantidad() { return cantidad; }
+    public void setCantidad(Long cantidad) { this.cantidad = cantidad; }
+}
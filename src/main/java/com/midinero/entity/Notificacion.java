@@ -0,0 +1,78 @@
+package com.midinero.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Bandeja de notificaciones del usuario. El envío por STOMP sigue siendo inmediato; esta tabla
+// permite recuperar lo no leído al reconectar. Se escribe en lotes desde NotificacionEscritor.
+@Entity
+@Table(name = "notificaciones", indexes = {
+    @Index(name = "idx_notificaciones_usuario_leida_id", columnList = "usuario_id, leida, id")
+})
+public class Notificacion {
+    // Secuencia con asignación en bloques para poder agrupar los INSERT en lotes JDBC
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notificaciones_seq")
+    @SequenceGenerator(name = "notificaciones_seq", sequenceName = "notificaciones_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "usuario_id", nullable = false)
+    private Long usuarioId;
+
+    @Column(nullable = false, length = 40)
+    private String tipo;
+
+    @Column(nullable = false, length = 100)
+    private String titulo;
+
+    @Column(nullable = false, length = 500)
+    private String mensaje;
+
+    // Carga completa enviada por STOMP, en JSON
+    @Column(columnDefinition = "TEXT")
+    private String datos;
+
+    @Column(nullable = false)
+    private Boolean leida = false;
+
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+
+    // Constructors
+    public Notificacion() {}
+
+    public Notificacion(Long usuarioId, String tipo, String titulo, String mensaje, String datos, LocalDateTime fecha) {
+        this.usuarioId = usuarioId;
+        this.tipo = tipo;
+        this.titulo = titulo;
+        this.mensaje = mensaje;
+        this.datos = datos;
+        this.fecha = fecha;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUsuarioId() { return usuarioId; }
+    public void setUsuarioId(Long usuarioId) { this.usuarioId = usuarioId; }
+
+    public String getTipo() { return tipo; }
+    public void setTipo(String tipo) { this.tipo = tipo; }
+
+    public String getTitulo() { return titulo; }
+    public void setTitulo(String titulo) { this.titulo = titulo; }
+
+    public String getMensaje() { return mensaje; }
+    public void setMensaje(String mensaje) { this.mensaje = mensaje; }
+
+    public String getDatos() { return datos; }
+    public void setDatos(String datos) { this.datos = datos; }
+
+    public Boolean getLeida() { return leida; }
+    public void setLeida(Boolean leida) { this.leida = leida; }
+
+    public LocalDateTime getFecha() { return fecha; }
+    public void setFecha(LocalDateTime fecha) { this.fecha = fecha; }
+}
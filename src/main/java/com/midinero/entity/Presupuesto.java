@@ -29,6 +29,10 @@ public class Presupuesto {
     @Column(nullable = false)
     private String mes; // Formato: "2024-01"
 
+    // Mayor umbral de gasto ya notificado en el mes (0, 80, 100 o 120 %); cada nivel se avisa una sola vez
+    @Column(name = "umbral_notificado", nullable = false)
+    private Integer umbralNotificado = 0;
+
     // Constructors
     public Presupuesto() {}
 
@@ -54,4 +58,7 @@ public class Presupuesto {
 
     public String getMes() { return mes; }
     public void setMes(String mes) { this.mes = mes; }
+
+    public Integer getUmbralNotificado() { return umbralNotificado; }
+    public void setUmbralNotificado(Integer umbralNotificado) { this.umbralNotificado = (umbralNotificado != null ? umbralNotificado : 0); }
 }
@@ -0,0 +1,47 @@
+package com.midinero.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Lease de una tarea programada: solo el nodo que lo tiene ejecuta la tarea hasta bloqueado_hasta.
+// También guarda quién ejecutó la última vez, cuándo empezó y cuánto duró.
+@Entity
+@Table(name = "scheduler_lock")
+public class SchedulerLock {
+    @Id
+    @Column(length = 64)
+    private String nombre;
+
+    @Column(name = "bloqueado_hasta", nullable = false)
+    private LocalDateTime bloqueadoHasta;
+
+    @Column(name = "bloqueado_en", nullable = false)
+    private LocalDateTime bloqueadoEn;
+
+    @Column(name = "bloqueado_por", nullable = false, length = 255)
+    private String bloqueadoPor;
+
+    // null mientras la ejecución está en curso
+    @Column(name = "duracion_ms")
+    private Long duracionMs;
+
+    // Constructors
+    public SchedulerLock() {}
+
+    // Getters and Setters
+    public String getNombre() { return nombre; }
+    public void setNombre(String nombre) { this.nombre = nombre; }
+
+    public LocalDateTime getBloqueadoHasta() { return bloqueadoHasta; }
+    public void setBloqueadoHasta(LocalDateTime bloqueadoHasta) { this.bloqueadoHasta = bloqueadoHasta; }
+
+    public LocalDateTime getBloqueadoEn() { return bloqueadoEn; }
+    public void setBloqueadoEn(LocalDateTime bloqueadoEn) { this.bloqueadoEn = bloqueadoEn; }
+
+    public String getBloqueadoPor() { return bloqueadoPor; }
+    public void setBloqueadoPor(String bloqueadoPor) { this.bloqueadoPor = bloqueadoPor; }
+
+    public Long getDuracionMs() { return duracionMs; }
+    public void setDuracionMs(Long duracionMs) { this.duracionMs = duracionMs; }
+}
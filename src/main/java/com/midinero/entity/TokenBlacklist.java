@@ -5,15 +5,23 @@ import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
 
+// Token revocado: se guarda la huella SHA-256 (64 hex) en lugar del JWT completo, junto con su exp real.
+// La fila deja de ser necesaria cuando el token expira, así que la purga se hace por fecha_expiracion.
 @Entity
-@Table(name = "tokens_blacklist")
+@Table(name = "tokens_revocados", indexes = {
+    @Index(name = "idx_tokens_revocados_expiracion", columnList = "fecha_expiracion"),
+    @Index(name = "idx_tokens_revocados_bloqueo", columnList = "fecha_bloqueo")
+})
 public class TokenBlacklist {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true, length = 1000)
-    private String token;
+    @Column(name = "token_hash", nullable = false, unique = true, length = 64, columnDefinition = "CHAR(64)")
+    private String tokenHash;
+
+    @Column(name = "fecha_expiracion", nullable = false)
+    private LocalDateTime fechaExpiracion;
 
     @CreationTimestamp
     @Column(name = "fecha_bloqueo", nullable = false)
@@ -22,16 +30,20 @@ public class TokenBlacklist {
     // Constructors
     public TokenBlacklist() {}
 
-    public TokenBlacklist(String token) {
-        this.token = token;
+    public TokenBlacklist(String tokenHash, LocalDateTime fechaExpiracion) {
+        this.tokenHash = tokenHash;
+        this.fechaExpiracion = fechaExpiracion;
     }
 
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
-    public String getToken() { return token; }
-    public void setToken(String token) { this.token = token; }
+    public String getTokenHash() { return tokenHash; }
+    public void setTokenHash(String tokenHash) { this.tokenHash = tokenHash; }
+
+    public LocalDateTime getFechaExpiracion() { return fechaExpiracion; }
+    public void setFechaExpiracion(LocalDateTime fechaExpiracion) { this.fechaExpiracion = fechaExpiracion; }
 
     public LocalDateTime getFechaBloqueo() { return fechaBloqueo; }
     public void setFechaBloqueo(LocalDateTime fechaBloqueo) { this.fechaBloqueo = fechaBloqueo; }
@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tokens_reset")
+@Table(name = "tokens_reset", indexes = {
+    @Index(name = "idx_tokens_reset_expiracion", columnList = "fecha_expiracion")
+})
 public class TokenReset {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
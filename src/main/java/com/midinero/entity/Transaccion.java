@@ -5,15 +5,19 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
-import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transacciones")
+@Table(name = "transacciones", indexes = {
+    @Index(name = "idx_transacciones_usuario_fecha", columnList = "usuario_id, fecha, id"),
+    @Index(name = "idx_transacciones_usuario_anulada_fecha", columnList = "usuario_id, anulada, fecha")
+})
 public class Transaccion {
+    // Secuencia con asignación en bloques (no IDENTITY) para que Hibernate pueda agrupar los INSERT en lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transacciones_seq")
+    @SequenceGenerator(name = "transacciones_seq", sequenceName = "transacciones_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -34,7 +38,7 @@ public class Transaccion {
     @Column(nullable = false)
     private Double monto;
 
-    @CreationTimestamp
+    // Se asigna al persistir si no viene informada (las importaciones conservan su fecha original)
     @Column(nullable = false)
     private LocalDateTime fecha;
 
@@ -46,6 +50,13 @@ public class Transaccion {
     public Boolean getAnulada() { return anulada; }
     public void setAnulada(Boolean anulada) { this.anulada = anulada; }
 
+    @PrePersist
+    protected void asignarFecha() {
+        if (fecha == null) {
+            fecha = LocalDateTime.now();
+        }
+    }
+
     public enum TipoTransaccion {
         INGRESO, GASTO
     }
@@ -47,6 +47,10 @@ public class Usuario {
     @Column(name = "saldo", nullable = false)
     private Double saldo = 0.0;
 
+    // Se incrementa al cambiar la contraseña; invalida los JWT emitidos con una versión anterior
+    @Column(name = "version_token", nullable = false)
+    private Integer versionToken = 0;
+
     @OneToMany(mappedBy = "usuario", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Transaccion> transacciones;
 
@@ -64,6 +68,9 @@ public class Usuario {
     )
     private List<TokenReset> tokensReset = new ArrayList<>();
 
+    @OneToMany(mappedBy = "usuario", cascade = CascadeType.REMOVE, fetch = FetchType.LAZY)
+    private List<GastoMensualCategoria> gastosMensuales = new ArrayList<>();
+
     // Constructors
     public Usuario() {}
 
@@ -116,6 +123,11 @@ public class Usuario {
     public Double getSaldo() { return saldo; }
     public void setSaldo(Double saldo) { this.saldo = (saldo != null ? saldo : 0.0); }
 
+    public Integer getVersionToken() { return versionToken; }
+    public void setVersionToken(Integer versionToken) { this.versionToken = (versionToken != null ? versionToken : 0); }
+
+    public void incrementarVersionToken() { this.versionToken = getVersionToken() + 1; }
+
     public List<Transaccion> getTransacciones() { return transacciones; }
     public void setTransacciones(List<Transaccion> transacciones) { this.transacciones = transacciones; }
 
@@ -127,4 +139,7 @@ public class Usuario {
 
     public List<TokenReset> getTokensReset() { return tokensReset; }
     public void setTokensReset(List<TokenReset> tokensReset) { this.tokensReset = tokensReset; }
+
+    public List<GastoMensualCategoria> getGastosMensuales() { return gastosMensuales; }
+    public void setGastosMensuales(List<GastoMensualCategoria> gastosMensuales) { this.gastosMensuales = gastosMensuales; }
 }
@@ -0,0 +1,59 @@
+package com.midinero.event;
+
+import com.midinero.entity.Transaccion;
+import com.midinero.service.MetaAhorroService;
+import com.midinero.service.PresupuestoService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.TimeUnit;
+
+// Efectos secundarios de una transacción (presupuestos y metas) fuera del hilo de la petición
+@Component
+public class TransaccionEventListener {
+
+    private final PresupuestoService presupuestoService;
+    private final MetaAhorroService metaAhorroService;
+    private final Timer duracion;
+    private final Timer retraso;
+
+    @Autowired
+    public TransaccionEventListener(PresupuestoService presupuestoService,
+                                    MetaAhorroService metaAhorroService,
+                                    MeterRegistry meterRegistry) {
+        this.presupuestoService = presupuestoService;
+        this.metaAhorroService = metaAhorroService;
+        this.duracion = Timer.builder("eventos.handler.duracion")
+                .description("Tiempo de ejecución del handler")
+                .tag("evento", "transaccion_registrada")
+                .register(meterRegistry);
+        this.retraso = Timer.builder("eventos.handler.retraso")
+                .description("Tiempo desde la publicación hasta el fin del handler, incluida la espera en cola")
+                .tag("evento", "transaccion_registrada")
+                .register(meterRegistry);
+    }
+
+    // Transacción propia: si la cola está llena, CallerRunsPolicy ejecuta el handler en el hilo de la
+    // petición, todavía dentro de la sincronización AFTER_COMMIT; con REQUIRED las escrituras se unirían
+    // a la transacción ya confirmada y se perderían sin error.
+    @Async("eventosExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onTransaccionRegistrada(TransaccionRegistradaEvent event) {
+        duracion.record(() -> {
+            if (event.getTipo() == Transaccion.TipoTransaccion.GASTO) {
+                presupuestoService.verificarPresupuesto(event.getUsuarioId(), event.getCategoria(), event.getMonto());
+            } else {
+                metaAhorroService.actualizarMetasConIngreso(event.getUsuarioId(), event.getMonto());
+            }
+        });
+        retraso.record(System.nanoTime() - event.getPublicadoEnNanos(), TimeUnit.NANOSECONDS);
+    }
+}
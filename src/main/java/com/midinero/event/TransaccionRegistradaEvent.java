@@ -0,0 +1,26 @@
+package com.midinero.event;
+
+import com.midinero.entity.Transaccion;
+
+// Se publica cuando una transacción se crea o se edita; los listeners lo reciben tras el commit
+public class TransaccionRegistradaEvent {
+    private final Long usuarioId;
+    private final Transaccion.TipoTransaccion tipo;
+    private final String categoria;
+    private final Double monto;
+    private final long publicadoEnNanos;
+
+    public TransaccionRegistradaEvent(Long usuarioId, Transaccion.TipoTransaccion tipo, String categoria, Double monto) {
+        this.usuarioId = usuarioId;
+        this.tipo = tipo;
+        this.categoria = categoria;
+        this.monto = monto;
+        this.publicadoEnNanos = System.nanoTime();
+    }
+
+    public Long getUsuarioId() { return usuarioId; }
+    public Transaccion.TipoTransaccion getTipo() { return tipo; }
+    public String getCategoria() { return categoria; }
+    public Double getMonto() { return monto; }
+    public long getPublicadoEnNanos() { return publicadoEnNanos; }
+}
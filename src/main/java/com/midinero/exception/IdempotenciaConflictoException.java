@@ -0,0 +1,10 @@
+package com.midinero.exception;
+
+// Se lanza cuando una Idempotency-Key ya usada llega con otra operación u otra petición (método, ruta o cuerpo).
+// La traduce a 422 ManejadorExcepciones: el cliente reutilizó la clave por error y reintentar no sirve.
+public class IdempotenciaConflictoException extends RuntimeException {
+
+    public IdempotenciaConflictoException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,24 @@
+package com.midinero.exception;
+
+import com.midinero.dto.ApiResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ManejadorExcepciones {
+
+    @ExceptionHandler(ServicioSaturadoException.class)
+    public ResponseEntity<ApiResponse<Void>> servicioSaturado(ServicioSaturadoException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getReintentarEnSegundos()))
+                .body(ApiResponse.error(e.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotenciaConflictoException.class)
+    public ResponseEntity<ApiResponse<Void>> idempotenciaConflicto(IdempotenciaConflictoException e) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(ApiResponse.error(e.getMessage()));
+    }
+}
@@ -0,0 +1,17 @@
+package com.midinero.exception;
+
+// Se lanza cuando un recurso acotado (p. ej. el pool de hashing de contraseñas) no admite más trabajo.
+// La traduce a 503 con Retry-After ManejadorExcepciones; los servicios deben relanzarla, no envolverla.
+public class ServicioSaturadoException extends RuntimeException {
+
+    private final long reintentarEnSegundos;
+
+    public ServicioSaturadoException(String message, long reintentarEnSegundos) {
+        super(message);
+        this.reintentarEnSegundos = reintentarEnSegundos;
+    }
+
+    public long getReintentarEnSegundos() {
+        return reintentarEnSegundos;
+    }
+}
@@ -0,0 +1,24 @@
+package com.midinero.repository;
+
+import com.midinero.entity.ClaveIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface ClaveIdempotenciaRepository extends JpaRepository<ClaveIdempotencia, Long> {
+    Optional<ClaveIdempotencia> findByUsuarioIdAndClave(Long usuarioId, String clave);
+
+    @Modifying
+    @Query("UPDATE ClaveIdempotencia c SET c.respuesta = :respuesta WHERE c.id = :id")
+    int guardarRespuesta(@Param("id") Long id, @Param("respuesta") String respuesta);
+
+    @Modifying
+    @Query(value = "DELETE FROM claves_idempotencia WHERE fecha_creacion < :corte LIMIT :limite", nativeQuery = true)
+    int eliminarAnterioresA(@Param("corte") LocalDateTime corte, @Param("limite") int limite);
+}
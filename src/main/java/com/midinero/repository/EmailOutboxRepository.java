@@ -0,0 +1,20 @@
+package com.midinero.repository;
+
+import com.midinero.entity.EmailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    @Query("SELECT e FROM EmailOutbox e WHERE e.estado = :estado AND e.proximoIntento <= :ahora ORDER BY e.id")
+    List<EmailOutbox> findListos(@Param("estado") EmailOutbox.EstadoEmail estado,
+                                 @Param("ahora") LocalDateTime ahora,
+                                 Pageable pageable);
+}
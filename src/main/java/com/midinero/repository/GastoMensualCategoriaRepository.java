@@ -0,0 +1,59 @@
+package com.midinero.repository;
+
+import com.midinero.entity.GastoMensualCategoria;
+import com.midinero.entity.Transaccion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GastoMensualCategoriaRepository extends JpaRepository<GastoMensualCategoria, Long> {
+
+    @Query("SELECT g.total FROM GastoMensualCategoria g WHERE g.usuario.id = :usuarioId AND g.mes = :mes AND g.categoria = :categoria AND g.tipo = :tipo")
+    Double findTotal(
+        @Param("usuarioId") Long usuarioId,
+        @Param("mes") String mes,
+        @Param("categoria") String categoria,
+        @Param("tipo") Transaccion.TipoTransaccion tipo
+    );
+
+    // Todos los acumulados de un usuario para un conjunto de meses, en una sola consulta
+    @Query("SELECT g FROM GastoMensualCategoria g WHERE g.usuario.id = :usuarioId AND g.tipo = :tipo AND g.mes IN :meses")
+    List<GastoMensualCategoria> findByUsuarioIdAndTipoAndMesIn(
+        @Param("usuarioId") Long usuarioId,
+        @Param("tipo") Transaccion.TipoTransaccion tipo,
+        @Param("meses") Collection<String> meses
+    );
+
+    // Upsert atómico: suma (o resta, con valores negativos) sobre la fila del mes sin leerla antes
+    @Modifying
+    @Query(value = "INSERT INTO gasto_mensual_categoria (usuario_id, mes, categoria, tipo, total, cantidad) " +
+                   "VALUES (:usuarioId, :mes, :categoria, :tipo, :monto, :cantidad) " +
+                   "ON DUPLICATE KEY UPDATE total = total + VALUES(total), cantidad = cantidad + VALUES(cantidad)",
+           nativeQuery = true)
+    int acumular(
+        @Param("usuarioId") Long usuarioId,
+        @Param("mes") String mes,
+        @Param("categoria") String categoria,
+        @Param("tipo") String tipo,
+        @Param("monto") Double monto,
+        @Param("cantidad") long cantidad
+    );
+
+    @Modifying
+    @Query(value = "DELETE FROM gasto_mensual_categoria WHERE usuario_id = :usuarioId", nativeQuery = true)
+    int vaciarDeUsuario(@Param("usuarioId") Long usuarioId);
+
+    @Modifying
+    @Query(value = "INSERT INTO gasto_mensual_categoria (usuario_id, mes, categoria, tipo, total, cantidad) " +
+                   "SELECT usuario_id, DATE_FORMAT(fecha, '%Y-%m'), categoria, tipo, SUM(monto), COUNT(*) " +
+                   "FROM transacciones WHERE usuario_id = :usuarioId AND anulada = false " +
+                   "GROUP BY usuario_id, DATE_FORMAT(fecha, '%Y-%m'), categoria, tipo",
+           nativeQuery = true)
+    int reconstruirDeUsuario(@Param("usuarioId") Long usuarioId);
+}
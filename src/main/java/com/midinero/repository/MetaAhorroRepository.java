@@ -2,6 +2,9 @@ package com.midinero.repository;
 
 import com.midinero.entity.MetaAhorro;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +15,21 @@ public interface MetaAhorroRepository extends JpaRepository<MetaAhorro, Long> {
 
     // Nuevo: buscar metas por usuario y estado
     List<MetaAhorro> findByUsuarioIdAndEstado(Long usuarioId, MetaAhorro.EstadoMeta estado);
+
+    // Suma atómica sobre una meta activa sin leerla antes; con limitarAlObjetivo no la deja pasar
+    // del objetivo (devuelve 0 y el llamador decide). Devuelve 0 si la meta ya no está activa.
+    @Modifying
+    @Query("UPDATE MetaAhorro m SET m.montoActual = m.montoActual + :monto " +
+           "WHERE m.id = :id AND m.estado = com.midinero.entity.MetaAhorro.EstadoMeta.ACTIVA " +
+           "AND (:limitarAlObjetivo = false OR m.montoActual + :monto <= m.montoObjetivo)")
+    int sumarMonto(@Param("id") Long id, @Param("monto") Double monto,
+                   @Param("limitarAlObjetivo") boolean limitarAlObjetivo);
+
+    // Marca la meta como completada si ya alcanzó el objetivo. Solo una llamada obtiene 1,
+    // así la notificación de meta completada sale una sola vez aunque lleguen ingresos simultáneos.
+    @Modifying
+    @Query("UPDATE MetaAhorro m SET m.estado = com.midinero.entity.MetaAhorro.EstadoMeta.COMPLETADA " +
+           "WHERE m.id = :id AND m.estado = com.midinero.entity.MetaAhorro.EstadoMeta.ACTIVA " +
+           "AND m.montoActual >= m.montoObjetivo")
+    int completarSiAlcanzada(@Param("id") Long id);
 }
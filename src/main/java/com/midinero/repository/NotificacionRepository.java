@@ -0,0 +1,30 @@
+package com.midinero.repository;
+
+import com.midinero.entity.Notificacion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificacionRepository extends JpaRepository<Notificacion, Long> {
+
+    // Keyset: no leídas con id mayor que el cursor, en orden ascendente
+    @Query("SELECT n FROM Notificacion n WHERE n.usuarioId = :usuarioId AND n.leida = false AND n.id > :desdeId ORDER BY n.id ASC")
+    List<Notificacion> findNoLeidas(@Param("usuarioId") Long usuarioId,
+                                    @Param("desdeId") Long desdeId,
+                                    Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Notificacion n SET n.leida = true WHERE n.usuarioId = :usuarioId AND n.id IN :ids")
+    int marcarLeidas(@Param("usuarioId") Long usuarioId, @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM Notificacion n WHERE n.usuarioId = :usuarioId")
+    int eliminarDeUsuario(@Param("usuarioId") Long usuarioId);
+}
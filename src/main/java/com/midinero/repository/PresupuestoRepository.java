@@ -2,6 +2,9 @@ package com.midinero.repository;
 
 import com.midinero.entity.Presupuesto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +15,9 @@ public interface PresupuestoRepository extends JpaRepository<Presupuesto, Long>
     List<Presupuesto> findByUsuarioId(Long usuarioId);
     Optional<Presupuesto> findByUsuarioIdAndCategoriaAndMes(Long usuarioId, String categoria, String mes);
     List<Presupuesto> findByUsuarioIdAndMes(Long usuarioId, String mes);
+
+    // Solo sube el umbral: si dos verificaciones compiten, una sola obtiene 1 y envía el aviso
+    @Modifying
+    @Query("UPDATE Presupuesto p SET p.umbralNotificado = :umbral WHERE p.id = :id AND p.umbralNotificado < :umbral")
+    int elevarUmbralNotificado(@Param("id") Long id, @Param("umbral") int umbral);
 }
@@ -0,0 +1,38 @@
+package com.midinero.repository;
+
+import com.midinero.entity.SchedulerLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLock, String> {
+
+    // Toma el lease solo si el anterior ya venció; devuelve 1 si este nodo lo obtuvo
+    @Modifying
+    @Query(value = "UPDATE scheduler_lock SET bloqueado_hasta = :hasta, bloqueado_en = :ahora, " +
+                   "bloqueado_por = :nodo, duracion_ms = NULL " +
+                   "WHERE nombre = :nombre AND bloqueado_hasta <= :ahora",
+           nativeQuery = true)
+    int tomar(@Param("nombre") String nombre, @Param("nodo") String nodo,
+              @Param("ahora") LocalDateTime ahora, @Param("hasta") LocalDateTime hasta);
+
+    // Primera ejecución de la tarea: la fila aún no existe
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO scheduler_lock (nombre, bloqueado_hasta, bloqueado_en, bloqueado_por) " +
+                   "VALUES (:nombre, :hasta, :ahora, :nodo)",
+           nativeQuery = true)
+    int crear(@Param("nombre") String nombre, @Param("nodo") String nodo,
+              @Param("ahora") LocalDateTime ahora, @Param("hasta") LocalDateTime hasta);
+
+    @Modifying
+    @Query(value = "UPDATE scheduler_lock SET bloqueado_hasta = :hasta, duracion_ms = :duracion " +
+                   "WHERE nombre = :nombre AND bloqueado_por = :nodo AND bloqueado_en = :inicio",
+           nativeQuery = true)
+    int liberar(@Param("nombre") String nombre, @Param("nodo") String nodo, @Param("inicio") LocalDateTime inicio,
+                @Param("hasta") LocalDateTime hasta, @Param("duracion") long duracion);
+}
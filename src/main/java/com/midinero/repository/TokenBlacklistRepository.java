@@ -2,12 +2,23 @@ package com.midinero.repository;
 
 import com.midinero.entity.TokenBlacklist;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TokenBlacklistRepository extends JpaRepository<TokenBlacklist, Long> {
-    boolean existsByToken(String token);
-    void deleteByFechaBloqueoBefore(LocalDateTime cutoffDate);
+    boolean existsByTokenHash(String tokenHash);
+    Optional<TokenBlacklist> findByTokenHash(String tokenHash);
+    List<TokenBlacklist> findByFechaExpiracionAfter(LocalDateTime fecha);
+    List<TokenBlacklist> findByFechaBloqueoGreaterThanEqual(LocalDateTime desde);
+
+    @Modifying
+    @Query(value = "DELETE FROM tokens_revocados WHERE fecha_expiracion < :corte LIMIT :limite", nativeQuery = true)
+    int eliminarExpirados(@Param("corte") LocalDateTime corte, @Param("limite") int limite);
 }
@@ -2,6 +2,9 @@ package com.midinero.repository;
 
 import com.midinero.entity.TokenReset;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -10,5 +13,8 @@ import java.util.Optional;
 @Repository
 public interface TokenResetRepository extends JpaRepository<TokenReset, Long> {
     Optional<TokenReset> findByTokenAndUsadoFalseAndFechaExpiracionAfter(String token, LocalDateTime now);
-    void deleteByFechaExpiracionBefore(LocalDateTime now);
+
+    @Modifying
+    @Query(value = "DELETE FROM tokens_reset WHERE fecha_expiracion < :corte LIMIT :limite", nativeQuery = true)
+    int eliminarExpirados(@Param("corte") LocalDateTime corte, @Param("limite") int limite);
 }
@@ -1,30 +1,83 @@
 package com.midinero.repository;
 
 import com.midinero.entity.Transaccion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransaccionRepository extends JpaRepository<Transaccion, Long> {
-    List<Transaccion> findByUsuarioIdOrderByFechaDesc(Long usuarioId);
-
-    // Solo transacciones no anuladas
-    List<Transaccion> findByUsuarioIdAndAnuladaFalseOrderByFechaDesc(Long usuarioId);
-    
-    @Query("SELECT SUM(t.monto) FROM Transaccion t WHERE t.usuario.id = :usuarioId AND t.tipo = :tipo AND t.categoria = :categoria AND t.anulada = false AND t.fecha >= :fechaInicio AND t.fecha <= :fechaFin")
-    Double sumByUsuarioIdAndTipoAndCategoriaAndFechaBetween(
+    // Historial filtrado con paginación por cursor (keyset) sobre (fecha, id).
+    // Los filtros nulos se descartan; el Pageable solo aporta el LIMIT.
+    // Servido por el índice (usuario_id, anulada, fecha).
+    @Query("SELECT t FROM Transaccion t WHERE t.usuario.id = :usuarioId " +
+           "AND (:incluirAnuladas = true OR t.anulada = false) " +
+           "AND (:desde IS NULL OR t.fecha >= :desde) " +
+           "AND (:hasta IS NULL OR t.fecha < :hasta) " +
+           "AND (:tipo IS NULL OR t.tipo = :tipo) " +
+           "AND (:categoria IS NULL OR t.categoria = :categoria) " +
+           "AND (:cursorFecha IS NULL OR t.fecha < :cursorFecha OR (t.fecha = :cursorFecha AND t.id < :cursorId)) " +
+           "ORDER BY t.fecha DESC, t.id DESC")
+    List<Transaccion> findHistorial(
         @Param("usuarioId") Long usuarioId,
+        @Param("incluirAnuladas") boolean incluirAnuladas,
+        @Param("desde") LocalDateTime desde,
+        @Param("hasta") LocalDateTime hasta,
+        @Param("tipo") Transaccion.TipoTransaccion tipo,
+        @Param("categoria") String categoria,
+        @Param("cursorFecha") LocalDateTime cursorFecha,
+        @Param("cursorId") Long cursorId,
+        Pageable pageable
+    );
+
+    // Cursor de solo avance para exportar el historial completo: con fetch size Integer.MIN_VALUE
+    // el driver de MySQL entrega las filas de una en una en lugar de cargar todo el resultado.
+    // Debe consumirse dentro de una transacción y cerrarse al terminar.
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaccion t WHERE t.usuario.id = :usuarioId ORDER BY t.fecha DESC, t.id DESC")
+    Stream<Transaccion> streamByUsuarioId(@Param("usuarioId") Long usuarioId);
+
+    // Anulación condicional: solo si sigue vigente y con los datos que se leyeron. Devuelve 0 si otra
+    // petición la anuló o la editó antes; en ese caso el llamador no debe tocar el saldo.
+    @Modifying
+    @Query("UPDATE Transaccion t SET t.anulada = true WHERE t.id = :id AND t.anulada = false " +
+           "AND t.tipo = :tipo AND t.monto = :monto AND t.categoria = :categoria")
+    int anular(
+        @Param("id") Long id,
+        @Param("tipo") Transaccion.TipoTransaccion tipo,
+        @Param("monto") Double monto,
+        @Param("categoria") String categoria
+    );
+
+    // Edición condicional sobre los valores anteriores, con la misma regla que anular
+    @Modifying
+    @Query("UPDATE Transaccion t SET t.tipo = :tipo, t.categoria = :categoria, t.monto = :monto, " +
+           "t.descripcion = :descripcion WHERE t.id = :id AND t.anulada = false " +
+           "AND t.tipo = :tipoAnterior AND t.monto = :montoAnterior AND t.categoria = :categoriaAnterior")
+    int editar(
+        @Param("id") Long id,
+        @Param("tipoAnterior") Transaccion.TipoTransaccion tipoAnterior,
+        @Param("montoAnterior") Double montoAnterior,
+        @Param("categoriaAnterior") String categoriaAnterior,
         @Param("tipo") Transaccion.TipoTransaccion tipo,
         @Param("categoria") String categoria,
-        @Param("fechaInicio") LocalDateTime fechaInicio,
-        @Param("fechaFin") LocalDateTime fechaFin
+        @Param("monto") Double monto,
+        @Param("descripcion") String descripcion
     );
-    
+
     List<Transaccion> findByUsuarioIdAndTipoAndAnuladaFalseAndFechaBetween(
         Long usuarioId, 
         Transaccion.TipoTransaccion tipo, 
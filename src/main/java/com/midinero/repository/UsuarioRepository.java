@@ -2,8 +2,12 @@ package com.midinero.repository;
 
 import com.midinero.entity.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +15,16 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     Optional<Usuario> findByEmail(String email);
     boolean existsByEmail(String email);
     boolean existsByEmailAndIdNot(String email, Long id);
+
+    @Query("SELECT u.versionToken FROM Usuario u WHERE u.id = :id")
+    Optional<Integer> findVersionTokenById(@Param("id") Long id);
+
+    // Recorrido por keyset de los ids de usuario, para procesos que trabajan usuario a usuario
+    @Query(value = "SELECT id FROM usuarios WHERE id > :desdeId ORDER BY id LIMIT :limite", nativeQuery = true)
+    List<Long> findIdsDesde(@Param("desdeId") Long desdeId, @Param("limite") int limite);
+
+    // Ajuste atómico del saldo sin bloqueo previo: devuelve 0 si el saldo resultante sería negativo
+    @Modifying
+    @Query("UPDATE Usuario u SET u.saldo = u.saldo + :delta WHERE u.id = :id AND u.saldo + :delta >= 0")
+    int ajustarSaldo(@Param("id") Long id, @Param("delta") Double delta);
 }
@@ -1,34 +1,92 @@
 package com.midinero.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.midinero.entity.Usuario;
 import com.midinero.repository.UsuarioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+
+// Los UserPrincipal se guardan en una caché acotada por id (y un índice email -> id para el login).
+// Quien cambie email, contraseña o elimine la cuenta debe llamar a invalidar(id); en otros nodos
+// el cambio se ve al vencer el TTL. Métricas: cache.gets/evictions/size con cache=usuarios.principal.
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    private final Cache<Long, UserPrincipal> principalesPorId;
+    private final Cache<String, Long> idsPorEmail;
+
+    public CustomUserDetailsService(MeterRegistry meterRegistry,
+                                    @Value("${usuarios.principal-cache.ttl-segundos:60}") long ttlSegundos,
+                                    @Value("${usuarios.principal-cache.max-entradas:50000}") long maxEntradas) {
+        this.principalesPorId = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats()
+                .build();
+        this.idsPorEmail = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principalesPorId, "usuarios.principal");
+    }
+
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        Long id = idsPorEmail.getIfPresent(email);
+        UserPrincipal principal = id != null ? principalesPorId.getIfPresent(id) : null;
+        // El índice puede apuntar a un principal cuyo email ya cambió
+        if (principal != null && principal.getUsername().equals(email)) {
+            return principal;
+        }
+
         Usuario usuario = usuarioRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado con email: " + email));
 
-        return UserPrincipal.create(usuario);
+        return guardar(UserPrincipal.create(usuario));
     }
 
     @Transactional
     public UserDetails loadUserById(Long id) {
+        UserPrincipal principal = principalesPorId.getIfPresent(id);
+        if (principal != null) {
+            return principal;
+        }
+
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado con id: " + id));
 
-        return UserPrincipal.create(usuario);
+        return guardar(UserPrincipal.create(usuario));
+    }
+
+    public void invalidar(Long id) {
+        InvalidacionCache.ahoraYTrasCommit(() -> descartar(id));
+    }
+
+    private void descartar(Long id) {
+        UserPrincipal principal = principalesPorId.getIfPresent(id);
+        principalesPorId.invalidate(id);
+        if (principal != null) {
+            idsPorEmail.invalidate(principal.getUsername());
+        }
+    }
+
+    private UserPrincipal guardar(UserPrincipal principal) {
+        principalesPorId.put(principal.getId(), principal);
+        idsPorEmail.put(principal.getUsername(), principal.getId());
+        return principal;
     }
 }
@@ -0,0 +1,50 @@
+package com.midinero.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Filtro de Bloom sobre huellas SHA-256 (hex). Responde "seguro que no está" o "puede estar".
+// Las inserciones son atómicas por palabra, así que admite lecturas concurrentes sin bloqueo.
+final class FiltroBloom {
+
+    private final AtomicLongArray bits;
+    private final long numBits;
+    private final int numHashes;
+
+    FiltroBloom(long capacidad, double probabilidadFalsoPositivo) {
+        long n = Math.max(1, capacidad);
+        long m = (long) Math.ceil(-n * Math.log(probabilidadFalsoPositivo) / (Math.log(2) * Math.log(2)));
+        int palabras = (int) Math.max(1, (m + 63) / 64);
+        this.bits = new AtomicLongArray(palabras);
+        this.numBits = (long) palabras * 64;
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+    }
+
+    void agregar(String huella) {
+        long h1 = Long.parseUnsignedLong(huella.substring(0, 16), 16);
+        long h2 = Long.parseUnsignedLong(huella.substring(16, 32), 16);
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numBits);
+            int palabra = (int) (bit >>> 6);
+            long mascara = 1L << (bit & 63);
+            long actual;
+            do {
+                actual = bits.get(palabra);
+                if ((actual & mascara) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(palabra, actual, actual | mascara));
+        }
+    }
+
+    boolean puedeContener(String huella) {
+        long h1 = Long.parseUnsignedLong(huella.substring(0, 16), 16);
+        long h2 = Long.parseUnsignedLong(huella.substring(16, 32), 16);
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,23 @@
+package com.midinero.security;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Invalida una entrada de caché ahora y, si hay una transacción en curso, de nuevo tras el commit:
+// entre ambos momentos otra petición puede recargar el valor anterior desde la base de datos.
+final class InvalidacionCache {
+
+    private InvalidacionCache() {}
+
+    static void ahoraYTrasCommit(Runnable descartar) {
+        descartar.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    descartar.run();
+                }
+            });
+        }
+    }
+}
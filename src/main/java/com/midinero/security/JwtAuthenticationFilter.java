@@ -1,11 +1,13 @@
 package com.midinero.security;
 
 import com.midinero.service.TokenBlacklistService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -28,17 +30,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private TokenBlacklistService tokenBlacklistService;
 
+    @Autowired
+    private VersionTokenCache versionTokenCache;
+
+    // Si está activo, el principal se arma con los claims del token en lugar de consultar usuarios
+    @Value("${jwt.principal-sin-estado:true}")
+    private boolean principalSinEstado;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                   FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = getJwtFromRequest(request);
+            UserDetails userDetails = StringUtils.hasText(jwt) ? autenticar(jwt) : null;
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt) && !tokenBlacklistService.isTokenBlacklisted(jwt)) {
-                Long userId = tokenProvider.getUserIdFromToken(jwt);
-
-                UserDetails userDetails = customUserDetailsService.loadUserById(userId);
-                UsernamePasswordAuthenticationToken authentication = 
+            if (userDetails != null) {
+                UsernamePasswordAuthenticationToken authentication =
                     new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
@@ -51,6 +58,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Principal del token si la firma es válida, no fue revocado y su versión sigue vigente; null en otro caso.
+    // Lo usan también las conexiones STOMP (StompAutenticacionInterceptor).
+    UserPrincipal autenticar(String jwt) {
+        // Una sola verificación de firma; los claims se reutilizan
+        Claims claims = tokenProvider.parseToken(jwt);
+        if (claims == null || tokenBlacklistService.isTokenBlacklisted(jwt)) {
+            return null;
+        }
+        return resolverPrincipal(Long.parseLong(claims.getSubject()), claims);
+    }
+
+    // Devuelve null si el token pertenece a una versión revocada (contraseña cambiada o cuenta eliminada)
+    private UserPrincipal resolverPrincipal(Long userId, Claims claims) {
+        int versionToken = tokenProvider.getVersionToken(claims);
+        String email = claims.get(JwtTokenProvider.CLAIM_EMAIL, String.class);
+
+        if (principalSinEstado && email != null) {
+            return versionTokenCache.esVigente(userId, versionToken)
+                    ? UserPrincipal.fromClaims(userId, email, versionToken)
+                    : null;
+        }
+
+        UserPrincipal principal = (UserPrincipal) customUserDetailsService.loadUserById(userId);
+        return principal.getVersionToken() == versionToken ? principal : null;
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
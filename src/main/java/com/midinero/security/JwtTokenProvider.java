@@ -2,6 +2,7 @@ package com.midinero.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
@@ -12,14 +13,25 @@ import java.util.Date;
 @Component
 public class JwtTokenProvider {
 
+    public static final String CLAIM_EMAIL = "email";
+    public static final String CLAIM_VERSION = "ver";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
     @Value("${jwt.expiration}")
     private int jwtExpirationInMs;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    // La clave y el parser son inmutables y seguros entre hilos: se construyen una sola vez
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
     public String generateToken(Authentication authentication) {
@@ -28,49 +40,46 @@ public class JwtTokenProvider {
 
         return Jwts.builder()
                 .setSubject(Long.toString(userPrincipal.getId()))
+                .claim(CLAIM_EMAIL, userPrincipal.getUsername())
+                .claim(CLAIM_VERSION, userPrincipal.getVersionToken())
                 .setIssuedAt(new Date())
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    public Long getUserIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return Long.parseLong(claims.getSubject());
-    }
-
-    public boolean validateToken(String authToken) {
+    // Verifica firma y expiración en una sola pasada; devuelve null si el token no es válido
+    public Claims parseToken(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(authToken);
-            return true;
-        } catch (SecurityException ex) {
-            System.err.println("Invalid JWT signature");
-        } catch (MalformedJwtException ex) {
-            System.err.println("Invalid JWT token");
+            return jwtParser.parseClaimsJws(token).getBody();
         } catch (ExpiredJwtException ex) {
             System.err.println("Expired JWT token");
+        } catch (MalformedJwtException ex) {
+            System.err.println("Invalid JWT token");
         } catch (UnsupportedJwtException ex) {
             System.err.println("Unsupported JWT token");
+        } catch (JwtException ex) {
+            System.err.println("Invalid JWT signature");
         } catch (IllegalArgumentException ex) {
             System.err.println("JWT claims string is empty");
         }
-        return false;
+        return null;
+    }
+
+    // Los tokens emitidos antes de existir el claim se consideran versión 0
+    public int getVersionToken(Claims claims) {
+        Integer version = claims.get(CLAIM_VERSION, Integer.class);
+        return version != null ? version : 0;
     }
 
-    public Date getExpirationDateFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getExpiration();
+    // Expiración del token aunque ya haya vencido; null si la firma o el formato no son válidos
+    public Date getExpiracion(String token) {
+        try {
+            return jwtParser.parseClaimsJws(token).getBody().getExpiration();
+        } catch (ExpiredJwtException ex) {
+            return ex.getClaims().getExpiration();
+        } catch (JwtException | IllegalArgumentException ex) {
+            return null;
+        }
     }
 }
@@ -0,0 +1,55 @@
+package com.midinero.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Token bucket por clave. Las cubetas viven en una caché acotada (memoria plana aunque haya millones
+// de claves distintas) y se actualizan bajo uno de N cerrojos elegido por hash de la clave.
+final class LimitadorTokenBucket {
+
+    private static final int FRANJAS = 64;
+
+    private final Object[] cerrojos = new Object[FRANJAS];
+    private final Cache<String, Cubeta> cubetas;
+
+    LimitadorTokenBucket(long maxClaves, Duration inactividad) {
+        for (int i = 0; i < FRANJAS; i++) {
+            cerrojos[i] = new Object();
+        }
+        this.cubetas = Caffeine.newBuilder()
+                .maximumSize(maxClaves)
+                .expireAfterAccess(inactividad)
+                .build();
+    }
+
+    // Devuelve 0 si se consumió un token, o los nanosegundos que faltan para el siguiente
+    long consumir(String clave, int capacidad, double recargaPorSegundo) {
+        Cubeta cubeta = cubetas.get(clave, k -> new Cubeta(capacidad, System.nanoTime()));
+        synchronized (cerrojos[Math.floorMod(clave.hashCode(), FRANJAS)]) {
+            long ahora = System.nanoTime();
+            double recarga = Math.max(0, ahora - cubeta.ultimaRecargaNanos) / 1e9 * recargaPorSegundo;
+            cubeta.tokens = Math.min(capacidad, cubeta.tokens + recarga);
+            cubeta.ultimaRecargaNanos = ahora;
+            if (cubeta.tokens >= 1) {
+                cubeta.tokens -= 1;
+                return 0;
+            }
+            return recargaPorSegundo > 0
+                    ? (long) Math.ceil((1 - cubeta.tokens) / recargaPorSegundo * TimeUnit.SECONDS.toNanos(1))
+                    : Long.MAX_VALUE;
+        }
+    }
+
+    private static final class Cubeta {
+        private double tokens;
+        private long ultimaRecargaNanos;
+
+        private Cubeta(double tokens, long ultimaRecargaNanos) {
+            this.tokens = tokens;
+            this.ultimaRecargaNanos = ultimaRecargaNanos;
+        }
+    }
+}
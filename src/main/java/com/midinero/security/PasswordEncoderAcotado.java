@@ -0,0 +1,91 @@
+package com.midinero.security;
+
+import com.midinero.exception.ServicioSaturadoException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Ejecuta el hashing (BCrypt) en un pool acotado al número de núcleos en lugar de en los hilos
+// de Tomcat. Si la cola está llena o la espera supera el límite, falla rápido con 503.
+public class PasswordEncoderAcotado implements PasswordEncoder {
+
+    private static final long REINTENTAR_EN_SEGUNDOS = 2;
+
+    private final PasswordEncoder delegado;
+    private final AsyncTaskExecutor executor;
+    private final long esperaMaximaMs;
+    private final Timer duracionEncode;
+    private final Timer duracionMatches;
+    private final Counter rechazos;
+
+    public PasswordEncoderAcotado(PasswordEncoder delegado, AsyncTaskExecutor executor,
+                                  long esperaMaximaMs, MeterRegistry meterRegistry) {
+        this.delegado = delegado;
+        this.executor = executor;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.duracionEncode = Timer.builder("password.hash.duracion").tag("operacion", "encode")
+                .description("Tiempo de cálculo del hash, sin contar la espera en cola")
+                .register(meterRegistry);
+        this.duracionMatches = Timer.builder("password.hash.duracion").tag("operacion", "matches")
+                .description("Tiempo de cálculo del hash, sin contar la espera en cola")
+                .register(meterRegistry);
+        this.rechazos = Counter.builder("password.hash.rechazos")
+                .description("Peticiones rechazadas con 503 por pool de hashing saturado")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return ejecutar(() -> duracionEncode.recordCallable(() -> delegado.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return ejecutar(() -> duracionMatches.recordCallable(() -> delegado.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegado.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T ejecutar(Callable<T> tarea) {
+        Future<T> futuro;
+        try {
+            futuro = executor.submit(tarea);
+        } catch (TaskRejectedException e) {
+            throw saturado();
+        }
+
+        try {
+            return futuro.get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            futuro.cancel(true);
+            throw saturado();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futuro.cancel(true);
+            throw new IllegalStateException("Hashing de contraseña interrumpido", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(causa);
+        }
+    }
+
+    private ServicioSaturadoException saturado() {
+        rechazos.increment();
+        return new ServicioSaturadoException("Servicio ocupado, inténtalo de nuevo en unos segundos", REINTENTAR_EN_SEGUNDOS);
+    }
+}
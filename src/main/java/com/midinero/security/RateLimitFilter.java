@@ -0,0 +1,87 @@
+package com.midinero.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.midinero.config.RateLimitProperties;
+import com.midinero.dto.ApiResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Limita peticiones por grupo de rutas. Va justo después de JwtAuthenticationFilter para poder
+// usar el id del usuario autenticado como clave; en rutas públicas se usa la IP del cliente.
+// No es un @Component para que Spring Boot no lo registre además como filtro de servlet.
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimitProperties properties;
+    private final LimitadorTokenBucket limitador;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.limitador = new LimitadorTokenBucket(properties.getMaxClaves(),
+                Duration.ofSeconds(properties.getInactividadSegundos()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RateLimitProperties.Grupo grupo = properties.isHabilitado() ? buscarGrupo(request.getRequestURI()) : null;
+        if (grupo == null || "OPTIONS".equals(request.getMethod())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String clave = grupo.getNombre() + ":" + identificarCliente(request);
+        long esperaNanos = limitador.consumir(clave, grupo.getCapacidad(), grupo.getRecargaPorSegundo());
+        if (esperaNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        meterRegistry.counter("rate-limit.rechazos", "grupo", grupo.getNombre()).increment();
+        long reintentarEn = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(Math.min(esperaNanos, TimeUnit.HOURS.toNanos(1))) + 1);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(reintentarEn));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(),
+                ApiResponse.error("Demasiadas solicitudes, inténtalo de nuevo en " + reintentarEn + " segundos"));
+    }
+
+    private RateLimitProperties.Grupo buscarGrupo(String uri) {
+        for (RateLimitProperties.Grupo grupo : properties.getGrupos()) {
+            for (String patron : grupo.getPatrones()) {
+                if (pathMatcher.match(patron, uri)) {
+                    return grupo;
+                }
+            }
+        }
+        return null;
+    }
+
+    private String identificarCliente(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return "u" + principal.getId();
+        }
+        // Con server.forward-headers-strategy=native es la IP del cliente, no la del balanceador
+        return "ip" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,77 @@
+package com.midinero.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.security.Principal;
+
+// Autentica el frame CONNECT con el mismo JWT de la API (cabecera nativa Authorization: Bearer ...).
+// La sesión STOMP queda asociada al id del usuario, que es el nombre usado por convertAndSendToUser.
+//
+// Los demás frames solo llegan a destinos propios del cliente: SUBSCRIBE a /user/** (Spring lo traduce
+// a la cola de su sesión) y SEND a /app/**. Con el relay activo, los destinos del broker (/queue, /topic)
+// también transportan los difundidos internos entre nodos, con notificaciones de todos los usuarios;
+// un cliente no puede suscribirse ni enviar a ellos directamente, ni enviar a /user/{otro}/... .
+@Component
+public class StompAutenticacionInterceptor implements ChannelInterceptor {
+
+    @Autowired
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            String jwt = getJwtFromHeader(accessor.getFirstNativeHeader("Authorization"));
+            UserPrincipal principal = jwt != null ? jwtAuthenticationFilter.autenticar(jwt) : null;
+
+            if (principal == null) {
+                // El cliente recibe un frame ERROR y la sesión se cierra
+                throw new MessageDeliveryException(message, "Token inválido o ausente");
+            }
+            accessor.setUser(new UsuarioStomp(principal.getId()));
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            autorizar(message, accessor, "/user/");
+        } else if (StompCommand.SEND.equals(accessor.getCommand())) {
+            autorizar(message, accessor, "/app/");
+        }
+        return message;
+    }
+
+    private void autorizar(Message<?> message, StompHeaderAccessor accessor, String prefijoPermitido) {
+        if (accessor.getUser() == null) {
+            throw new MessageDeliveryException(message, "Sesión STOMP no autenticada");
+        }
+        String destino = accessor.getDestination();
+        if (destino == null || !destino.startsWith(prefijoPermitido)) {
+            throw new MessageDeliveryException(message, "Destino no permitido: " + destino);
+        }
+    }
+
+    private String getJwtFromHeader(String bearerToken) {
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
+        }
+        return null;
+    }
+
+    private record UsuarioStomp(Long usuarioId) implements Principal {
+        @Override
+        public String getName() {
+            return usuarioId.toString();
+        }
+    }
+}
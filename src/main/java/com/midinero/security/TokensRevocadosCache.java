@@ -0,0 +1,220 @@
+package com.midinero.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.midinero.entity.TokenBlacklist;
+import com.midinero.repository.TokenBlacklistRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Tokens revocados en memoria: un filtro de Bloom responde el caso común ("no revocado")
+// sin tocar la base de datos, y un mapa huella -> expiración confirma los positivos.
+// Solo se consulta tokens_revocados cuando el filtro da positivo y el mapa no lo confirma, es decir,
+// ante un falso positivo del filtro; los ya comprobados se recuerdan en una caché negativa pequeña.
+//
+// El filtro solo conoce las revocaciones de este nodo y las traídas por sincronizar(). Un token revocado
+// en otro nodo da negativo aquí y se sigue aceptando hasta la siguiente sincronización: como mucho
+// tokens-revocados.sincronizacion-ms más lo que tarde la pasada. Si la sincronización deja de completarse,
+// pasado tokens-revocados.desfase-maximo-ms se vuelve a consultar la base en cada petición.
+@Component
+public class TokensRevocadosCache {
+
+    // Solape al sincronizar para no perder filas confirmadas con retraso o con relojes desfasados
+    private static final long SOLAPE_SINCRONIZACION_SEGUNDOS = 60;
+
+    @Autowired
+    private TokenBlacklistRepository tokenBlacklistRepository;
+
+    @Value("${tokens-revocados.bloom.capacidad:100000}")
+    private long capacidad;
+
+    @Value("${tokens-revocados.bloom.falsos-positivos:0.01}")
+    private double probabilidadFalsoPositivo;
+
+    @Value("${tokens-revocados.desfase-maximo-ms:90000}")
+    private long desfaseMaximoMs;
+
+    private final Map<String, Long> expiracionPorHuella = new ConcurrentHashMap<>();
+    private final Object cerrojo = new Object();
+
+    private volatile FiltroBloom filtro;
+    private volatile boolean cargado = false;
+    private long capacidadFiltro;
+    private LocalDateTime ultimaSincronizacion;
+    // System.nanoTime() de la última carga o sincronización completa
+    private volatile long sincronizadoEnNanos;
+
+    // Huellas que el filtro da como posibles pero la base no tiene. Se invalidan al registrar o sincronizar
+    // una revocación con la misma huella; el TTL solo acota el tamaño ante huellas que ya no se usan.
+    private final Cache<String, Boolean> noRevocados = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    private final Counter descartados;
+    private final Counter revocados;
+    private final Counter falsosPositivos;
+    private final Counter falsosPositivosEnCache;
+    private final Counter sinSincronizar;
+
+    public TokensRevocadosCache(MeterRegistry meterRegistry) {
+        this.descartados = Counter.builder("tokens.revocados.consultas").tag("resultado", "filtro_negativo")
+                .description("Tokens descartados por el filtro de Bloom sin consultar la base de datos")
+                .register(meterRegistry);
+        this.revocados = Counter.builder("tokens.revocados.consultas").tag("resultado", "revocado")
+                .description("Tokens confirmados como revocados")
+                .register(meterRegistry);
+        this.falsosPositivos = Counter.builder("tokens.revocados.consultas").tag("resultado", "falso_positivo")
+                .description("Positivos del filtro de Bloom que la base de datos no confirmó")
+                .register(meterRegistry);
+        this.falsosPositivosEnCache = Counter.builder("tokens.revocados.consultas").tag("resultado", "falso_positivo_cache")
+                .description("Falsos positivos del filtro resueltos por la caché negativa sin consultar la base")
+                .register(meterRegistry);
+        this.sinSincronizar = Counter.builder("tokens.revocados.consultas").tag("resultado", "sin_sincronizar")
+                .description("Consultas a la base porque la última sincronización supera el desfase máximo")
+                .register(meterRegistry);
+        meterRegistry.gaugeMapSize("tokens.revocados.memoria", Tags.empty(), expiracionPorHuella);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        LocalDateTime inicio = LocalDateTime.now();
+        synchronized (cerrojo) {
+            for (TokenBlacklist fila : tokenBlacklistRepository.findByFechaExpiracionAfter(inicio)) {
+                registrarEnMapa(fila.getTokenHash(), fila.getFechaExpiracion());
+            }
+            reconstruirFiltro();
+            ultimaSincronizacion = inicio;
+        }
+        sincronizadoEnNanos = System.nanoTime();
+        cargado = true;
+    }
+
+    // Trae las revocaciones hechas en otros nodos y reconstruye el filtro si algo expiró.
+    // Mantiene estado de este nodo, por eso corre en todas las réplicas (sin lease)
+    @Scheduled(fixedDelayString = "${tokens-revocados.sincronizacion-ms:30000}")
+    public void sincronizar() {
+        if (!cargado) {
+            return;
+        }
+        long inicioNanos = System.nanoTime();
+        LocalDateTime inicio = LocalDateTime.now();
+        LocalDateTime desde = ultimaSincronizacion.minusSeconds(SOLAPE_SINCRONIZACION_SEGUNDOS);
+        synchronized (cerrojo) {
+            for (TokenBlacklist fila : tokenBlacklistRepository.findByFechaBloqueoGreaterThanEqual(desde)) {
+                noRevocados.invalidate(fila.getTokenHash());
+                if (!expiracionPorHuella.containsKey(fila.getTokenHash())
+                        && registrarEnMapa(fila.getTokenHash(), fila.getFechaExpiracion())) {
+                    filtro.agregar(fila.getTokenHash());
+                }
+            }
+            long ahora = System.currentTimeMillis();
+            boolean huboExpirados = expiracionPorHuella.values().removeIf(exp -> exp <= ahora);
+            // Un filtro de Bloom no admite borrados: se reconstruye para soltar los expirados
+            // o para crecer si se superó la capacidad con la que se dimensionó
+            if (huboExpirados || expiracionPorHuella.size() > capacidadFiltro) {
+                reconstruirFiltro();
+            }
+            ultimaSincronizacion = inicio;
+        }
+        sincronizadoEnNanos = inicioNanos;
+    }
+
+    public void registrar(String huella, LocalDateTime fechaExpiracion) {
+        noRevocados.invalidate(huella);
+        synchronized (cerrojo) {
+            if (registrarEnMapa(huella, fechaExpiracion) && filtro != null) {
+                filtro.agregar(huella);
+            }
+        }
+    }
+
+    public boolean estaRevocado(String token) {
+        String huella = huella(token);
+        if (!cargado) {
+            return tokenBlacklistRepository.existsByTokenHash(huella);
+        }
+        // Con la sincronización atrasada el filtro puede no tener revocaciones recientes de otros nodos
+        if (System.nanoTime() - sincronizadoEnNanos > TimeUnit.MILLISECONDS.toNanos(desfaseMaximoMs)) {
+            sinSincronizar.increment();
+            return consultarBase(huella);
+        }
+
+        if (!filtro.puedeContener(huella)) {
+            descartados.increment();
+            return false;
+        }
+
+        Long expiracion = expiracionPorHuella.get(huella);
+        if (expiracion != null && expiracion > System.currentTimeMillis()) {
+            revocados.increment();
+            return true;
+        }
+
+        if (noRevocados.getIfPresent(huella) != null) {
+            falsosPositivosEnCache.increment();
+            return false;
+        }
+        if (consultarBase(huella)) {
+            return true;
+        }
+        falsosPositivos.increment();
+        noRevocados.put(huella, Boolean.TRUE);
+        return false;
+    }
+
+    private boolean consultarBase(String huella) {
+        TokenBlacklist fila = tokenBlacklistRepository.findByTokenHash(huella).orElse(null);
+        if (fila != null) {
+            registrar(huella, fila.getFechaExpiracion());
+            revocados.increment();
+            return true;
+        }
+        return false;
+    }
+
+    // Devuelve false si el token ya expiró y no hace falta recordarlo
+    private boolean registrarEnMapa(String huella, LocalDateTime fechaExpiracion) {
+        long expiracion = fechaExpiracion.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (expiracion <= System.currentTimeMillis()) {
+            return false;
+        }
+        expiracionPorHuella.put(huella, expiracion);
+        return true;
+    }
+
+    private void reconstruirFiltro() {
+        capacidadFiltro = Math.max(capacidad, expiracionPorHuella.size() * 2L);
+        FiltroBloom nuevo = new FiltroBloom(capacidadFiltro, probabilidadFalsoPositivo);
+        expiracionPorHuella.keySet().forEach(nuevo::agregar);
+        filtro = nuevo;
+    }
+
+    // SHA-256 en hexadecimal (64 caracteres) del token completo
+    public static String huella(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
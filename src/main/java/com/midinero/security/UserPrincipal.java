@@ -11,25 +11,41 @@ public class UserPrincipal implements UserDetails {
     private Long id;
     private String email;
     private String password;
+    private int versionToken;
 
     public UserPrincipal(Long id, String email, String password) {
+        this(id, email, password, 0);
+    }
+
+    public UserPrincipal(Long id, String email, String password, int versionToken) {
         this.id = id;
         this.email = email;
         this.password = password;
+        this.versionToken = versionToken;
     }
 
     public static UserPrincipal create(Usuario usuario) {
         return new UserPrincipal(
                 usuario.getId(),
                 usuario.getEmail(),
-                usuario.getPassword()
+                usuario.getPassword(),
+                usuario.getVersionToken()
         );
     }
 
+    // Principal reconstruido solo a partir de los claims del JWT (sin contraseña)
+    public static UserPrincipal fromClaims(Long id, String email, int versionToken) {
+        return new UserPrincipal(id, email, null, versionToken);
+    }
+
     public Long getId() {
         return id;
     }
 
+    public int getVersionToken() {
+        return versionToken;
+    }
+
     @Override
     public String getUsername() {
         return email;
@@ -0,0 +1,47 @@
+package com.midinero.security;
+
+import com.midinero.entity.Usuario;
+import com.midinero.repository.UsuarioRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+// Usuario autenticado de la petición en curso, compartido por todos los servicios.
+// El id sale del token sin consultar la base de datos; la entidad completa se carga
+// como mucho una vez por petición y solo si algún servicio la necesita.
+@Component
+@RequestScope
+public class UsuarioAutenticadoContext {
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Usuario usuario;
+
+    public Long getUsuarioId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        return userPrincipal.getId();
+    }
+
+    // Entidad cargada (una sola consulta por petición)
+    public Usuario getUsuario() {
+        if (usuario == null) {
+            usuario = usuarioRepository.findById(getUsuarioId())
+                    .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        }
+        return usuario;
+    }
+
+    // Para asignar relaciones o comparar ids: no consulta si la entidad no se cargó antes
+    public Usuario getReferencia() {
+        return usuario != null ? usuario : entityManager.getReference(Usuario.class, getUsuarioId());
+    }
+}
@@ -0,0 +1,42 @@
+package com.midinero.security;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.midinero.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Versión vigente del token de cada usuario, consultada a lo sumo una vez por TTL y nodo.
+// Permite revocar JWT (cambio de contraseña, cuenta eliminada) sin leer usuarios en cada petición.
+@Component
+public class VersionTokenCache {
+
+    // Marca para usuarios inexistentes: ningún token coincide con ella
+    private static final int USUARIO_INEXISTENTE = -1;
+
+    private final LoadingCache<Long, Integer> versiones;
+
+    @Autowired
+    public VersionTokenCache(UsuarioRepository usuarioRepository,
+                             @Value("${jwt.version-cache.ttl-segundos:60}") long ttlSegundos,
+                             @Value("${jwt.version-cache.max-entradas:100000}") long maxEntradas) {
+        this.versiones = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .build(id -> usuarioRepository.findVersionTokenById(id).orElse(USUARIO_INEXISTENTE));
+    }
+
+    public boolean esVigente(Long usuarioId, int versionToken) {
+        Integer actual = versiones.get(usuarioId);
+        return actual != null && actual != USUARIO_INEXISTENTE && actual == versionToken;
+    }
+
+    // Los cambios locales se ven de inmediato (y se repite tras el commit de quien revoca);
+    // los demás nodos los ven al vencer el TTL
+    public void invalidar(Long usuarioId) {
+        InvalidacionCache.ahoraYTrasCommit(() -> versiones.invalidate(usuarioId));
+    }
+}
@@ -3,18 +3,24 @@ package com.midinero.service;
 import com.midinero.dto.*;
 import com.midinero.entity.TokenReset;
 import com.midinero.entity.Usuario;
+import com.midinero.exception.ServicioSaturadoException;
 import com.midinero.repository.TokenResetRepository;
 import com.midinero.repository.UsuarioRepository;
+import com.midinero.security.CustomUserDetailsService;
 import com.midinero.security.JwtTokenProvider;
+import com.midinero.security.VersionTokenCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -43,6 +49,18 @@ public class AuthService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private VersionTokenCache versionTokenCache;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private LimpiezaPorLotes limpiezaPorLotes;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
     public ApiResponse<UsuarioResponseDTO> registrarUsuario(UsuarioRegistroDTO registroDTO) {
         // Validar que las contraseñas coincidan
         if (!registroDTO.getPassword().equals(registroDTO.getConfirmPassword())) {
@@ -79,6 +97,8 @@ public class AuthService {
             String jwt = tokenProvider.generateToken(authentication);
 
             return ApiResponse.success("Inicio de sesión exitoso", jwt);
+        } catch (ServicioSaturadoException e) {
+            throw e; // 503, no "credenciales inválidas"
         } catch (Exception e) {
             return ApiResponse.error("Credenciales inválidas");
         }
@@ -107,8 +127,8 @@ public class AuthService {
             TokenReset tokenReset = new TokenReset(usuario, token, LocalDateTime.now().plusHours(1));
             tokenResetRepository.save(tokenReset);
 
-            // Enviar email
-            emailService.enviarEmailRecuperacion(usuario.getEmail(), token);
+            // Encolar email (se envía en segundo plano tras el commit)
+            emailService.encolarEmailRecuperacion(usuario.getEmail(), token);
 
             return ApiResponse.success("Si el email existe, recibirás un enlace de recuperación");
         } catch (Exception e) {
@@ -134,18 +154,33 @@ public class AuthService {
             // Actualizar contraseña
             Usuario usuario = tokenReset.getUsuario();
             usuario.setPassword(passwordEncoder.encode(resetDTO.getNuevaPassword()));
+            usuario.incrementarVersionToken(); // revoca los tokens emitidos antes del cambio
             usuarioRepository.save(usuario);
+            versionTokenCache.invalidar(usuario.getId());
+            userDetailsService.invalidar(usuario.getId());
 
             // Marcar token como usado
             tokenReset.setUsado(true);
             tokenResetRepository.save(tokenReset);
 
             return ApiResponse.success("Contraseña actualizada exitosamente");
+        } catch (ServicioSaturadoException e) {
+            throw e;
         } catch (Exception e) {
             return ApiResponse.error("Error al resetear la contraseña");
         }
     }
 
+    // Cada hora en punto, coordinada igual que TokenBlacklistService.limpiarTokensExpirados
+    @Scheduled(cron = "0 0 * * * *")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void limpiarTokensResetExpirados() {
+        schedulerLockService.ejecutarConLease("limpiar-tokens-reset", Duration.ofMinutes(30), Duration.ofMinutes(55), () -> {
+            LocalDateTime corte = LocalDateTime.now();
+            limpiezaPorLotes.ejecutar("tokens_reset", limite -> tokenResetRepository.eliminarExpirados(corte, limite));
+        });
+    }
+
     // === Mapper interno actualizado para incluir saldo (Double) ===
     private UsuarioResponseDTO convertirAUsuarioResponseDTO(Usuario usuario) {
         UsuarioResponseDTO dto = new UsuarioResponseDTO();
@@ -1,43 +1,166 @@
 package com.midinero.service;
 
+import com.midinero.entity.EmailOutbox;
+import com.midinero.repository.EmailOutboxRepository;
+import jakarta.annotation.PostConstruct;
 import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
+// Los emails se encolan en email_outbox dentro de la transacción del llamador y se envían
+// en segundo plano, con reintentos y espera exponencial. El SMTP nunca bloquea una petición.
 @Service
 public class EmailService {
 
+    private static final String MARCADOR_TOKEN = "{{TOKEN}}";
+    private static final int LONGITUD_MAXIMA_ERROR = 500;
+
+    private static final Duration LEASE = Duration.ofMinutes(5);
+    // El despacho se corta antes de que venza el lease, para que otro nodo no tome las mismas filas
+    private static final Duration MARGEN_LEASE = Duration.ofMinutes(1);
+
     @Autowired
     private JavaMailSender mailSender;
 
-    public void enviarEmailRecuperacion(String email, String token) {
-        try {
-            // Leer plantilla desde resources/email.html como stream
-            ClassPathResource resource = new ClassPathResource("email.html");
-            String html = new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Value("${email.outbox.tamanio-lote:20}")
+    private int tamanioLote;
+
+    @Value("${email.outbox.max-intentos:6}")
+    private int maxIntentos;
+
+    @Value("${email.outbox.espera-inicial-segundos:30}")
+    private long esperaInicialSegundos;
+
+    // Plantilla de recuperación leída una sola vez y partida alrededor de {{TOKEN}}
+    private String[] plantillaRecuperacion;
+
+    // Emails ya enviados cuya fila no se pudo borrar: no se reenvían y el borrado se reintenta
+    private final Set<Long> enviadosSinBorrar = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void cargarPlantillas() throws IOException {
+        ClassPathResource resource = new ClassPathResource("email.html");
+        String html = new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        plantillaRecuperacion = html.split(Pattern.quote(MARCADOR_TOKEN), -1);
+    }
+
+    public void encolarEmailRecuperacion(String email, String token) {
+        emailOutboxRepository.save(new EmailOutbox(email, EmailOutbox.Plantilla.RECUPERACION_PASSWORD, token));
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.intervalo-ms:5000}")
+    public void despacharPendientes() {
+        schedulerLockService.ejecutarConLease("despachar-emails", LEASE, Duration.ZERO, () -> {
+            long limite = System.nanoTime() + LEASE.minus(MARGEN_LEASE).toNanos();
+            borrarEnviados();
+
+            // Una fila cuyo fallo no se pudo registrar sigue "lista": no se vuelve a enviar en esta pasada
+            Set<Long> procesados = new HashSet<>();
+            List<EmailOutbox> lote;
+            boolean hayNuevos;
+            do {
+                lote = emailOutboxRepository.findListos(
+                        EmailOutbox.EstadoEmail.PENDIENTE, LocalDateTime.now(), PageRequest.of(0, tamanioLote));
+                hayNuevos = false;
+                for (EmailOutbox pendiente : lote) {
+                    if (System.nanoTime() - limite > 0) {
+                        return; // el resto queda para la próxima pasada
+                    }
+                    if (!procesados.add(pendiente.getId()) || enviadosSinBorrar.contains(pendiente.getId())) {
+                        continue;
+                    }
+                    hayNuevos = true;
+                    despachar(pendiente);
+                }
+            } while (hayNuevos && lote.size() == tamanioLote);
+        });
+    }
 
-            // Reemplazar marcador por el token
-            html = html.replace("{{TOKEN}}", token);
+    private void despachar(EmailOutbox pendiente) {
+        try {
+            enviar(pendiente);
+        } catch (Exception e) {
+            System.err.println("Error al enviar email " + pendiente.getId() + ": " + e.getMessage());
+            registrarFallo(pendiente, e);
+            return;
+        }
 
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(
-                    message, MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED, StandardCharsets.UTF_8.name()
-            );
+        // Un fallo al borrar no es un fallo de envío: el email ya salió y no debe repetirse
+        try {
+            emailOutboxRepository.delete(pendiente);
+        } catch (Exception e) {
+            System.err.println("Email " + pendiente.getId() + " enviado pero no se pudo borrar de la cola: " + e.getMessage());
+            enviadosSinBorrar.add(pendiente.getId());
+        }
+    }
 
-            helper.setTo(email);
-            helper.setSubject("Recuperación de Contraseña - MiDinero");
-            helper.setText(html, true); // true = contenido HTML
+    private void borrarEnviados() {
+        for (Long id : enviadosSinBorrar) {
+            try {
+                emailOutboxRepository.deleteById(id);
+                enviadosSinBorrar.remove(id);
+            } catch (Exception e) {
+                System.err.println("No se pudo borrar el email enviado " + id + ": " + e.getMessage());
+            }
+        }
+    }
 
-            mailSender.send(message);
+    // Espera 30s, 60s, 120s... entre intentos; al agotarlos el email queda FALLIDO
+    private void registrarFallo(EmailOutbox pendiente, Exception error) {
+        int intentos = pendiente.getIntentos() + 1;
+        pendiente.setIntentos(intentos);
+        String mensaje = String.valueOf(error.getMessage());
+        pendiente.setUltimoError(mensaje.length() > LONGITUD_MAXIMA_ERROR ? mensaje.substring(0, LONGITUD_MAXIMA_ERROR) : mensaje);
 
+        if (intentos >= maxIntentos) {
+            pendiente.setEstado(EmailOutbox.EstadoEmail.FALLIDO);
+            pendiente.setParametro(null); // no se conserva el token de un email que no se enviará
+        } else {
+            pendiente.setProximoIntento(LocalDateTime.now().plusSeconds(esperaInicialSegundos << (intentos - 1)));
+        }
+        try {
+            emailOutboxRepository.save(pendiente);
         } catch (Exception e) {
-            System.err.println("Error al enviar email: " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("Error al registrar el fallo del email " + pendiente.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private void enviar(EmailOutbox pendiente) throws Exception {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(
+                message, MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED, StandardCharsets.UTF_8.name()
+        );
+
+        helper.setTo(pendiente.getDestinatario());
+        switch (pendiente.getPlantilla()) {
+            case RECUPERACION_PASSWORD -> {
+                helper.setSubject("Recuperación de Contraseña - MiDinero");
+                helper.setText(String.join(pendiente.getParametro(), plantillaRecuperacion), true); // true = contenido HTML
+            }
         }
+
+        mailSender.send(message);
     }
 }
@@ -0,0 +1,130 @@
+package com.midinero.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.midinero.dto.TransaccionDTO;
+import com.midinero.entity.Transaccion;
+import com.midinero.repository.TransaccionRepository;
+import com.midinero.security.UserPrincipal;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+// Exportación del historial completo escribiendo cada fila directamente en la respuesta.
+// La memoria usada no depende del tamaño del historial.
+@Service
+public class ExportacionTransaccionService {
+
+    public enum Formato { CSV, NDJSON }
+
+    private static final int TAMANIO_BUFFER = 64 * 1024;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ExportacionTransaccionService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    // El usuario se resuelve aquí, en el hilo de la petición; el cuerpo se escribe luego en un hilo async
+    public StreamingResponseBody exportar(Formato formato, boolean gzip) {
+        Long usuarioId = obtenerUsuarioIdAutenticado();
+        return outputStream -> {
+            OutputStream destino = gzip ? new GZIPOutputStream(outputStream, TAMANIO_BUFFER) : outputStream;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(destino, StandardCharsets.UTF_8), TAMANIO_BUFFER);
+            try {
+                if (formato == Formato.CSV) {
+                    writer.write(TransaccionCsv.CABECERA);
+                    writer.write('\n');
+                }
+                transactionTemplate.executeWithoutResult(status -> escribirFilas(usuarioId, formato, writer));
+                writer.flush();
+                if (destino instanceof GZIPOutputStream gzipStream) {
+                    gzipStream.finish();
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+    }
+
+    private void escribirFilas(Long usuarioId, Formato formato, Writer writer) {
+        try (Stream<Transaccion> transacciones = transaccionRepository.streamByUsuarioId(usuarioId)) {
+            transacciones.forEach(t -> {
+                try {
+                    if (formato == Formato.CSV) {
+                        escribirCsv(t, writer);
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(convertirATransaccionDTO(t)));
+                        writer.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                // Se suelta cada entidad para que el contexto de persistencia no crezca con el historial
+                entityManager.detach(t);
+            });
+        }
+    }
+
+    private void escribirCsv(Transaccion t, Writer writer) throws IOException {
+        writer.write(String.valueOf(t.getId()));
+        writer.write(',');
+        writer.write(String.valueOf(t.getFecha()));
+        writer.write(',');
+        writer.write(t.getTipo().name());
+        writer.write(',');
+        writer.write(TransaccionCsv.escapar(t.getCategoria()));
+        writer.write(',');
+        writer.write(BigDecimal.valueOf(t.getMonto()).toPlainString());
+        writer.write(',');
+        writer.write(TransaccionCsv.escapar(t.getDescripcion()));
+        writer.write(',');
+        writer.write(String.valueOf(Boolean.TRUE.equals(t.getAnulada())));
+        writer.write('\n');
+    }
+
+    private Long obtenerUsuarioIdAutenticado() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        return userPrincipal.getId();
+    }
+
+    private TransaccionDTO convertirATransaccionDTO(Transaccion t) {
+        TransaccionDTO dto = new TransaccionDTO();
+        dto.setId(t.getId());
+        dto.setTipo(t.getTipo());
+        dto.setCategoria(t.getCategoria());
+        dto.setMonto(t.getMonto());
+        dto.setDescripcion(t.getDescripcion());
+        dto.setFecha(t.getFecha());
+        dto.setAnulada(t.getAnulada());
+        return dto;
+    }
+}
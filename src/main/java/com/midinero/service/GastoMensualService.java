@@ -0,0 +1,148 @@
+package com.midinero.service;
+
+import com.midinero.entity.GastoMensualCategoria;
+import com.midinero.entity.Transaccion;
+import com.midinero.repository.GastoMensualCategoriaRepository;
+import com.midinero.repository.UsuarioRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@Transactional
+public class GastoMensualService {
+
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    @Autowired
+    private GastoMensualCategoriaRepository gastoMensualRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${gasto-mensual.reconstruccion.usuarios-por-pagina:500}")
+    private int usuariosPorPagina;
+
+    // Una transacción corta por usuario; en READ COMMITTED el INSERT ... SELECT lee
+    // transacciones sin bloquearlas, así que solo espera quien escriba sobre el mismo usuario
+    private TransactionTemplate transaccionPorUsuario;
+
+    @PostConstruct
+    public void init() {
+        transaccionPorUsuario = new TransactionTemplate(transactionManager);
+        transaccionPorUsuario.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaccionPorUsuario.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    // Suma la transacción al acumulado de su mes; se ejecuta dentro de la transacción del llamador
+    public void registrar(Transaccion t) {
+        aplicar(t, 1);
+    }
+
+    // Resta la transacción del acumulado de su mes (edición o anulación)
+    public void revertir(Transaccion t) {
+        aplicar(t, -1);
+    }
+
+    @Transactional(readOnly = true)
+    public Double obtenerTotal(Long usuarioId, String categoria, String mes, Transaccion.TipoTransaccion tipo) {
+        Double total = gastoMensualRepository.findTotal(usuarioId, mes, categoria, tipo);
+        return total != null ? total : 0.0;
+    }
+
+    // Totales por (categoría, mes) para varios meses a la vez; la clave se arma con clave(categoria, mes)
+    @Transactional(readOnly = true)
+    public Map<String, Double> obtenerTotales(Long usuarioId, Collection<String> meses, Transaccion.TipoTransaccion tipo) {
+        Map<String, Double> totales = new HashMap<>();
+        if (meses.isEmpty()) {
+            return totales;
+        }
+        for (GastoMensualCategoria g : gastoMensualRepository.findByUsuarioIdAndTipoAndMesIn(usuarioId, tipo, meses)) {
+            totales.put(clave(g.getCategoria(), g.getMes()), g.getTotal());
+        }
+        return totales;
+    }
+
+    public static String clave(String categoria, String mes) {
+        return categoria + "|" + mes;
+    }
+
+    // Recalcula el acumulado completo desde las transacciones, por si alguna escritura quedó fuera
+    @Scheduled(cron = "${gasto-mensual.reconstruccion.cron:0 0 4 * * SUN}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void reconstruir() {
+        schedulerLockService.ejecutarConLease("reconstruir-gasto-mensual", Duration.ofHours(2), Duration.ofMinutes(30),
+                this::reconstruirTodos);
+    }
+
+    // Recorre todos los usuarios por páginas; devuelve false si alguno no se pudo reconstruir.
+    // No toma lease: lo hace quien la llama (reconstrucción semanal o carga inicial).
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean reconstruirTodos() {
+        boolean completa = true;
+        long ultimoId = 0;
+        List<Long> pagina;
+        do {
+            pagina = usuarioRepository.findIdsDesde(ultimoId, usuariosPorPagina);
+            for (Long usuarioId : pagina) {
+                completa &= reconstruirUsuario(usuarioId);
+                ultimoId = usuarioId;
+            }
+        } while (pagina.size() == usuariosPorPagina);
+        return completa;
+    }
+
+    // El borrado y la recarga van juntos: un upsert concurrente del mismo usuario espera al commit
+    // y se suma después, y uno anterior ya está en transacciones y entra en el SELECT
+    private boolean reconstruirUsuario(Long usuarioId) {
+        try {
+            transaccionPorUsuario.executeWithoutResult(status -> {
+                gastoMensualRepository.vaciarDeUsuario(usuarioId);
+                gastoMensualRepository.reconstruirDeUsuario(usuarioId);
+            });
+            return true;
+        } catch (Exception e) {
+            System.err.println("Error al reconstruir el acumulado mensual del usuario " + usuarioId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Suma varias transacciones ya agregadas (mismo usuario, mes, categoría y tipo) con un único upsert
+    public void acumular(Long usuarioId, String mes, String categoria, Transaccion.TipoTransaccion tipo,
+                         double total, long cantidad) {
+        gastoMensualRepository.acumular(usuarioId, mes, categoria, tipo.name(), total, cantidad);
+    }
+
+    public static String mesDe(LocalDateTime fecha) {
+        return fecha.format(FORMATO_MES);
+    }
+
+    private void aplicar(Transaccion t, int signo) {
+        if (Boolean.TRUE.equals(t.getAnulada()) || t.getMonto() == null) {
+            return;
+        }
+        LocalDateTime fecha = t.getFecha() != null ? t.getFecha() : LocalDateTime.now();
+        acumular(t.getUsuario().getId(), mesDe(fecha), t.getCategoria(), t.getTipo(), signo * t.getMonto(), signo);
+    }
+}
@@ -0,0 +1,202 @@
+package com.midinero.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.midinero.dto.ApiResponse;
+import com.midinero.entity.ClaveIdempotencia;
+import com.midinero.exception.IdempotenciaConflictoException;
+import com.midinero.repository.ClaveIdempotenciaRepository;
+import com.midinero.security.UsuarioAutenticadoContext;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// Deduplica reintentos de operaciones de escritura identificadas por la cabecera Idempotency-Key.
+// Las respuestas exitosas se guardan en claves_idempotencia y en una caché acotada en memoria,
+// de modo que la repetición de una petición devuelve la misma respuesta sin volver a ejecutarla.
+// Cada clave queda ligada a la huella de la petición (método, ruta con query y cuerpo): reutilizarla
+// con otra petición se rechaza con 422 en lugar de devolver la respuesta de la original.
+@Service
+public class IdempotenciaService {
+
+    private static final int LONGITUD_MAXIMA_CLAVE = 100;
+
+    private final ClaveIdempotenciaRepository claveRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final LimpiezaPorLotes limpiezaPorLotes;
+    private final SchedulerLockService schedulerLockService;
+    private final UsuarioAutenticadoContext usuarioAutenticado;
+    private final HttpServletRequest request;
+    private final Cache<String, RespuestaGuardada> respuestas;
+    private final Duration retencion;
+
+    @Autowired
+    public IdempotenciaService(ClaveIdempotenciaRepository claveRepository,
+                               ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager,
+                               LimpiezaPorLotes limpiezaPorLotes,
+                               SchedulerLockService schedulerLockService,
+                               UsuarioAutenticadoContext usuarioAutenticado,
+                               HttpServletRequest request,
+                               @Value("${idempotencia.cache.max-entradas:10000}") long maxEntradas,
+                               @Value("${idempotencia.retencion-horas:24}") long retencionHoras) {
+        this.claveRepository = claveRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.limpiezaPorLotes = limpiezaPorLotes;
+        this.schedulerLockService = schedulerLockService;
+        this.usuarioAutenticado = usuarioAutenticado;
+        this.request = request;
+        this.retencion = Duration.ofHours(retencionHoras);
+        this.respuestas = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(retencion)
+                .build();
+    }
+
+    // cuerpo es el DTO ya deserializado (null si la petición no lleva cuerpo); entra en la huella
+    public <T> ApiResponse<T> ejecutar(String clave, String operacion, Object cuerpo, Class<T> tipoDato,
+                                       Supplier<ApiResponse<T>> accion) {
+        if (clave == null || clave.isBlank()) {
+            return accion.get();
+        }
+        if (clave.length() > LONGITUD_MAXIMA_CLAVE) {
+            return ApiResponse.error("La Idempotency-Key no puede superar " + LONGITUD_MAXIMA_CLAVE + " caracteres");
+        }
+
+        Long usuarioId = usuarioAutenticado.getUsuarioId();
+        // La operación forma parte de la clave en memoria: una respuesta nunca se devuelve a otro endpoint
+        String claveCache = usuarioId + ":" + operacion + ":" + clave;
+        String huella = huellaDe(cuerpo);
+
+        RespuestaGuardada enMemoria = respuestas.getIfPresent(claveCache);
+        if (enMemoria != null) {
+            return enMemoria.paraPeticion(huella);
+        }
+
+        // Reserva de la clave sin consulta previa: en el caso común (clave nueva) el INSERT entra,
+        // y si ya existía el índice único lo rechaza y recién entonces se lee el registro
+        Long reservaId;
+        try {
+            reservaId = transactionTemplate.execute(status ->
+                    claveRepository.saveAndFlush(new ClaveIdempotencia(usuarioId, clave, operacion, huella)).getId());
+        } catch (DataIntegrityViolationException e) {
+            return buscarRespuesta(claveCache, usuarioId, clave, operacion, huella, tipoDato);
+        }
+
+        ApiResponse<T> respuesta;
+        try {
+            respuesta = accion.get();
+        } catch (RuntimeException e) {
+            liberar(reservaId);
+            throw e;
+        }
+
+        // Solo se fijan las respuestas exitosas; ante un error se libera la clave para permitir el reintento
+        if (!respuesta.isSuccess()) {
+            liberar(reservaId);
+            return respuesta;
+        }
+        // En memoria primero: los reintentos que lleguen a este nodo obtienen la respuesta aunque falle la escritura
+        respuestas.put(claveCache, new RespuestaGuardada(huella, respuesta));
+        try {
+            String json = objectMapper.writeValueAsString(respuesta);
+            transactionTemplate.executeWithoutResult(status -> claveRepository.guardarRespuesta(reservaId, json));
+        } catch (Exception e) {
+            // Sin liberarla, la clave quedaría "en proceso" hasta la limpieza (retención completa) y todo
+            // reintento en otro nodo fallaría. Liberada, ese reintento vuelve a ejecutar la operación.
+            System.err.println("Error al guardar la respuesta idempotente: " + e.getMessage());
+            try {
+                liberar(reservaId);
+            } catch (Exception ex) {
+                System.err.println("Error al liberar la Idempotency-Key: " + ex.getMessage());
+            }
+        }
+        return respuesta;
+    }
+
+    // Hora en punto en todas las réplicas; el lease retiene 55 min para que solo una la ejecute
+    @Scheduled(cron = "0 0 * * * *")
+    public void limpiarClavesExpiradas() {
+        schedulerLockService.ejecutarConLease("limpiar-claves-idempotencia", Duration.ofMinutes(30), Duration.ofMinutes(55), () -> {
+            LocalDateTime corte = LocalDateTime.now().minus(retencion);
+            limpiezaPorLotes.ejecutar("claves_idempotencia", limite -> claveRepository.eliminarAnterioresA(corte, limite));
+        });
+    }
+
+    private <T> ApiResponse<T> buscarRespuesta(String claveCache, Long usuarioId, String clave, String operacion,
+                                               String huella, Class<T> tipoDato) {
+        Optional<ClaveIdempotencia> registro = claveRepository.findByUsuarioIdAndClave(usuarioId, clave);
+        if (registro.isEmpty()) {
+            // Liberada entre el INSERT rechazado y esta lectura: la ejecución original falló
+            return ApiResponse.error("La solicitud original con esta Idempotency-Key no se completó; reintenta");
+        }
+        if (!operacion.equals(registro.get().getOperacion())) {
+            throw new IdempotenciaConflictoException("La Idempotency-Key ya se usó para otra operación");
+        }
+        String huellaOriginal = registro.get().getHuella();
+        if (huellaOriginal != null && !huellaOriginal.equals(huella)) {
+            throw new IdempotenciaConflictoException("La Idempotency-Key ya se usó con otra petición");
+        }
+        if (registro.get().getRespuesta() == null) {
+            return ApiResponse.error("Ya hay una solicitud en proceso con esta Idempotency-Key");
+        }
+        try {
+            JavaType tipo = objectMapper.getTypeFactory().constructParametricType(ApiResponse.class, tipoDato);
+            ApiResponse<T> respuesta = objectMapper.readValue(registro.get().getRespuesta(), tipo);
+            respuestas.put(claveCache, new RespuestaGuardada(huellaOriginal != null ? huellaOriginal : huella, respuesta));
+            return respuesta;
+        } catch (Exception e) {
+            return ApiResponse.error("No se pudo recuperar la respuesta original de esta Idempotency-Key");
+        }
+    }
+
+    private void liberar(Long reservaId) {
+        transactionTemplate.executeWithoutResult(status -> claveRepository.deleteById(reservaId));
+    }
+
+    // SHA-256 de "MÉTODO ruta?query" y del cuerpo serializado con el mismo ObjectMapper de la API
+    private String huellaDe(Object cuerpo) {
+        try {
+            String peticion = request.getMethod() + " " + request.getRequestURI()
+                    + (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(peticion.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            if (cuerpo != null) {
+                digest.update(objectMapper.writeValueAsBytes(cuerpo));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (Exception e) {
+            throw new IllegalStateException("No se pudo calcular la huella de la petición", e);
+        }
+    }
+
+    private record RespuestaGuardada(String huella, ApiResponse<?> respuesta) {
+        @SuppressWarnings("unchecked")
+        <T> ApiResponse<T> paraPeticion(String huellaPeticion) {
+            if (!huella.equals(huellaPeticion)) {
+                throw new IdempotenciaConflictoException("La Idempotency-Key ya se usó con otra petición");
+            }
+            return (ApiResponse<T>) respuesta;
+        }
+    }
+}
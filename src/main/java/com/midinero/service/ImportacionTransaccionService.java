@@ -0,0 +1,272 @@
+package com.midinero.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.midinero.dto.ApiResponse;
+import com.midinero.dto.ResultadoImportacionDTO;
+import com.midinero.dto.TransaccionDTO;
+import com.midinero.entity.Transaccion;
+import com.midinero.entity.Usuario;
+import com.midinero.event.TransaccionRegistradaEvent;
+import com.midinero.repository.UsuarioRepository;
+import com.midinero.security.UserPrincipal;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Importación masiva de transacciones (CSV o NDJSON) leyendo el cuerpo en streaming.
+// Cada lote se escribe en su propia transacción con INSERT agrupados y un único ajuste de saldo.
+@Service
+public class ImportacionTransaccionService {
+
+    public enum Formato { CSV, NDJSON }
+
+    private static final int MAX_ERRORES_REPORTADOS = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private GastoMensualService gastoMensualService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${transacciones.importacion.tamanio-lote:500}")
+    private int tamanioLote;
+
+    public ApiResponse<ResultadoImportacionDTO> importar(InputStream cuerpo, Formato formato) {
+        ResultadoImportacionDTO resultado = new ResultadoImportacionDTO();
+        try {
+            Long usuarioId = obtenerUsuarioIdAutenticado();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(cuerpo, StandardCharsets.UTF_8));
+
+            Map<String, Integer> columnas = null;
+            List<FilaImportada> lote = new ArrayList<>(tamanioLote);
+            long numeroLinea = 0;
+            String linea;
+
+            while ((linea = reader.readLine()) != null) {
+                numeroLinea++;
+                if (linea.isBlank()) {
+                    continue;
+                }
+                if (formato == Formato.CSV && columnas == null) {
+                    columnas = leerCabecera(linea);
+                    if (!columnas.keySet().containsAll(List.of("tipo", "categoria", "monto"))) {
+                        return ApiResponse.error("La cabecera CSV debe incluir tipo, categoria y monto");
+                    }
+                    continue;
+                }
+
+                try {
+                    TransaccionDTO dto = formato == Formato.CSV
+                            ? leerFilaCsv(linea, columnas)
+                            : objectMapper.readValue(linea, TransaccionDTO.class);
+                    String error = validar(dto);
+                    if (error != null) {
+                        rechazar(resultado, numeroLinea, error);
+                        continue;
+                    }
+                    lote.add(new FilaImportada(numeroLinea, dto));
+                } catch (Exception e) {
+                    rechazar(resultado, numeroLinea, "Formato inválido");
+                    continue;
+                }
+
+                if (lote.size() >= tamanioLote) {
+                    procesarLote(usuarioId, lote, resultado);
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty()) {
+                procesarLote(usuarioId, lote, resultado);
+            }
+
+            return ApiResponse.success("Importación finalizada", resultado);
+        } catch (IOException e) {
+            return ApiResponse.error("Error al leer el archivo de importación");
+        } catch (Exception e) {
+            return ApiResponse.error("Error al importar las transacciones");
+        }
+    }
+
+    private void procesarLote(Long usuarioId, List<FilaImportada> lote, ResultadoImportacionDTO resultado) {
+        Boolean aplicado;
+        try {
+            aplicado = transactionTemplate.execute(status -> escribirLote(usuarioId, lote));
+        } catch (Exception e) {
+            System.err.println("Error al guardar lote de importación: " + e.getMessage());
+            aplicado = null;
+        }
+
+        if (Boolean.TRUE.equals(aplicado)) {
+            resultado.setAceptadas(resultado.getAceptadas() + lote.size());
+            return;
+        }
+        resultado.setRechazadas(resultado.getRechazadas() + lote.size());
+        String rango = "(líneas " + lote.get(0).linea() + " a " + lote.get(lote.size() - 1).linea() + ")";
+        registrarError(resultado, lote.get(0).linea(), aplicado == null
+                ? "Error al guardar el lote " + rango
+                : "Lote rechazado por saldo insuficiente " + rango);
+    }
+
+    private boolean escribirLote(Long usuarioId, List<FilaImportada> lote) {
+        double delta = 0.0;
+        for (FilaImportada fila : lote) {
+            delta += efectoEnSaldo(fila.dto());
+        }
+        // Un único UPDATE condicional por lote; si el saldo no alcanza no se escribe nada
+        if (delta != 0 && usuarioRepository.ajustarSaldo(usuarioId, delta) == 0) {
+            return false;
+        }
+
+        Usuario usuario = entityManager.getReference(Usuario.class, usuarioId);
+        Map<ClaveAcumulado, double[]> acumulados = new HashMap<>();
+        Set<String> categoriasGastoMesActual = new HashSet<>();
+        String mesActual = GastoMensualService.mesDe(LocalDateTime.now());
+
+        for (FilaImportada fila : lote) {
+            TransaccionDTO dto = fila.dto();
+            Transaccion t = new Transaccion();
+            t.setUsuario(usuario);
+            t.setTipo(dto.getTipo());
+            t.setCategoria(dto.getCategoria().trim());
+            t.setMonto(dto.getMonto());
+            t.setDescripcion(dto.getDescripcion());
+            t.setFecha(dto.getFecha() != null ? dto.getFecha() : LocalDateTime.now());
+            entityManager.persist(t);
+
+            String mes = GastoMensualService.mesDe(t.getFecha());
+            double[] acumulado = acumulados.computeIfAbsent(
+                    new ClaveAcumulado(t.getTipo(), t.getCategoria(), mes), k -> new double[2]);
+            acumulado[0] += t.getMonto();
+            acumulado[1] += 1;
+            if (t.getTipo() == Transaccion.TipoTransaccion.GASTO && mes.equals(mesActual)) {
+                categoriasGastoMesActual.add(t.getCategoria());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // Acumulado mensual: un upsert por (tipo, categoría, mes) en lugar de uno por fila
+        for (Map.Entry<ClaveAcumulado, double[]> entry : acumulados.entrySet()) {
+            ClaveAcumulado clave = entry.getKey();
+            gastoMensualService.acumular(usuarioId, clave.mes(), clave.categoria(), clave.tipo(),
+                    entry.getValue()[0], (long) entry.getValue()[1]);
+        }
+
+        // Solo se revisan los presupuestos del mes en curso; las metas no se alimentan con ingresos históricos
+        for (String categoria : categoriasGastoMesActual) {
+            eventPublisher.publishEvent(new TransaccionRegistradaEvent(
+                    usuarioId, Transaccion.TipoTransaccion.GASTO, categoria, 0.0));
+        }
+        return true;
+    }
+
+    private Map<String, Integer> leerCabecera(String linea) {
+        Map<String, Integer> columnas = new HashMap<>();
+        List<String> campos = TransaccionCsv.separarCampos(linea.replace("\uFEFF", ""));
+        for (int i = 0; i < campos.size(); i++) {
+            columnas.put(campos.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        return columnas;
+    }
+
+    private TransaccionDTO leerFilaCsv(String linea, Map<String, Integer> columnas) {
+        List<String> campos = TransaccionCsv.separarCampos(linea);
+        TransaccionDTO dto = new TransaccionDTO();
+        dto.setTipo(Transaccion.TipoTransaccion.valueOf(campo(campos, columnas, "tipo").toUpperCase(Locale.ROOT)));
+        dto.setCategoria(campo(campos, columnas, "categoria"));
+        dto.setMonto(Double.parseDouble(campo(campos, columnas, "monto")));
+
+        String descripcion = campo(campos, columnas, "descripcion");
+        dto.setDescripcion(descripcion.isEmpty() ? null : descripcion);
+
+        String fecha = campo(campos, columnas, "fecha");
+        if (!fecha.isEmpty()) {
+            dto.setFecha(fecha.length() == 10 ? LocalDate.parse(fecha).atStartOfDay() : LocalDateTime.parse(fecha));
+        }
+        return dto;
+    }
+
+    private String campo(List<String> campos, Map<String, Integer> columnas, String nombre) {
+        Integer indice = columnas.get(nombre);
+        if (indice == null || indice >= campos.size()) {
+            return "";
+        }
+        return campos.get(indice).trim();
+    }
+
+    private String validar(TransaccionDTO dto) {
+        for (ConstraintViolation<TransaccionDTO> violacion : validator.validate(dto)) {
+            return violacion.getMessage();
+        }
+        if (dto.getDescripcion() != null && dto.getDescripcion().length() > 500) {
+            return "La descripción no puede superar 500 caracteres";
+        }
+        if (dto.getFecha() != null && dto.getFecha().isAfter(LocalDateTime.now())) {
+            return "La fecha no puede ser futura";
+        }
+        return null;
+    }
+
+    private void rechazar(ResultadoImportacionDTO resultado, long linea, String motivo) {
+        resultado.setRechazadas(resultado.getRechazadas() + 1);
+        registrarError(resultado, linea, motivo);
+    }
+
+    private void registrarError(ResultadoImportacionDTO resultado, long linea, String motivo) {
+        if (resultado.getErrores().size() < MAX_ERRORES_REPORTADOS) {
+            resultado.getErrores().add(new ResultadoImportacionDTO.ErrorFila(linea, motivo));
+        }
+    }
+
+    private static double efectoEnSaldo(TransaccionDTO dto) {
+        return dto.getTipo() == Transaccion.TipoTransaccion.GASTO ? -dto.getMonto() : dto.getMonto();
+    }
+
+    private Long obtenerUsuarioIdAutenticado() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        return userPrincipal.getId();
+    }
+
+    private record FilaImportada(long linea, TransaccionDTO dto) {}
+
+    private record ClaveAcumulado(Transaccion.TipoTransaccion tipo, String categoria, String mes) {}
+}
@@ -0,0 +1,61 @@
+package com.midinero.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.IntUnaryOperator;
+
+// Ejecuta un DELETE ... LIMIT repetidamente, cada lote en su propia transacción corta,
+// hasta que un lote borra menos filas que el límite. Así la limpieza nunca retiene bloqueos
+// sobre miles de filas a la vez. Publica limpieza.filas.eliminadas y limpieza.duracion por tabla.
+@Component
+public class LimpiezaPorLotes {
+
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanioLote;
+    private final long pausaMs;
+
+    @Autowired
+    public LimpiezaPorLotes(MeterRegistry meterRegistry,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${limpieza.tamanio-lote:1000}") int tamanioLote,
+                            @Value("${limpieza.pausa-ms:50}") long pausaMs) {
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.tamanioLote = tamanioLote;
+        this.pausaMs = pausaMs;
+    }
+
+    // borrarLote recibe el límite de filas y devuelve cuántas borró
+    public int ejecutar(String tabla, IntUnaryOperator borrarLote) {
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        int total = 0;
+        try {
+            int borradas;
+            do {
+                Integer resultado = transactionTemplate.execute(status -> borrarLote.applyAsInt(tamanioLote));
+                borradas = resultado != null ? resultado : 0;
+                total += borradas;
+                if (borradas == tamanioLote && pausaMs > 0) {
+                    Thread.sleep(pausaMs); // deja pasar a las escrituras normales entre lotes
+                }
+            } while (borradas == tamanioLote);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Error al limpiar " + tabla + ": " + e.getMessage());
+        } finally {
+            meterRegistry.counter("limpieza.filas.eliminadas", "tabla", tabla).increment(total);
+            muestra.stop(Timer.builder("limpieza.duracion").tag("tabla", tabla).register(meterRegistry));
+        }
+        return total;
+    }
+}
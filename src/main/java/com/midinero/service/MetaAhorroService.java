@@ -7,12 +7,11 @@ import com.midinero.entity.MetaAhorro;
 import com.midinero.entity.Usuario;
 import com.midinero.repository.MetaAhorroRepository;
 import com.midinero.repository.UsuarioRepository;
-import com.midinero.security.UserPrincipal;
+import com.midinero.security.UsuarioAutenticadoContext;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -21,6 +20,9 @@ import java.util.stream.Collectors;
 @Transactional
 public class MetaAhorroService {
 
+    @Autowired
+    private UsuarioAutenticadoContext usuarioAutenticado;
+
     @Autowired
     private MetaAhorroRepository metaAhorroRepository;
 
@@ -32,7 +34,7 @@ public class MetaAhorroService {
 
     public ApiResponse<List<MetaAhorroDTO>> obtenerMetas() {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getReferencia();
             List<MetaAhorro> metas = metaAhorroRepository.findByUsuarioIdOrderByFechaInicioDesc(usuario.getId());
             
             List<MetaAhorroDTO> metasDTO = metas.stream()
@@ -47,7 +49,7 @@ public class MetaAhorroService {
 
     public ApiResponse<MetaAhorroDTO> crearMeta(MetaAhorroDTO metaDTO) {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getReferencia();
 
             MetaAhorro meta = new MetaAhorro();
             meta.setUsuario(usuario);
@@ -71,7 +73,7 @@ public class MetaAhorroService {
             if (monto == null || monto <= 0) {
                 return ApiResponse.error("El monto debe ser mayor a cero");
             }
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getReferencia();
             MetaAhorro meta = metaAhorroRepository.findById(metaId)
                     .orElseThrow(() -> new RuntimeException("Meta no encontrada"));
             if (!meta.getUsuario().getId().equals(usuario.getId())) {
@@ -80,26 +82,28 @@ public class MetaAhorroService {
             if (meta.getEstado() != MetaAhorro.EstadoMeta.ACTIVA) {
                 return ApiResponse.error("Solo puedes abonar a metas activas");
             }
-            if (usuario.getSaldo() < monto) {
-                return ApiResponse.error("Saldo insuficiente");
-            }
             double nuevoMonto = meta.getMontoActual() + monto;
             if (nuevoMonto > meta.getMontoObjetivo()) {
                 monto = meta.getMontoObjetivo() - meta.getMontoActual(); // Solo abona lo necesario para completar
                 nuevoMonto = meta.getMontoObjetivo();
             }
-            // Validación extra: nunca permitir saldo negativo
-            if (usuario.getSaldo() - monto < 0) {
-                return ApiResponse.error("Saldo insuficiente. No se permite saldo negativo.");
+            // El importe se suma en la base, no sobre lo leído: un ingreso que reparte a la meta
+            // al mismo tiempo no se pierde. Si entre tanto la meta se llenó, no se abona de más.
+            if (metaAhorroRepository.sumarMonto(metaId, monto, true) == 0) {
+                return ApiResponse.error("La meta cambió mientras se abonaba; vuelve a intentarlo");
             }
-            usuario.setSaldo(usuario.getSaldo() - monto);
-            meta.setMontoActual(nuevoMonto);
-            if (nuevoMonto >= meta.getMontoObjetivo()) {
-                meta.setEstado(MetaAhorro.EstadoMeta.COMPLETADA);
+            // Débito atómico: nunca permite saldo negativo aunque lleguen abonos concurrentes
+            if (usuarioRepository.ajustarSaldo(usuario.getId(), -monto) == 0) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return ApiResponse.error("Saldo insuficiente");
             }
-            usuarioRepository.save(usuario);
-            metaAhorroRepository.save(meta);
+            boolean completada = metaAhorroRepository.completarSiAlcanzada(metaId) > 0;
+            // La entidad leída no se modifica para que su flush no pise la suma hecha en la base
             MetaAhorroDTO dto = convertirAMetaAhorroDTO(meta);
+            dto.setMontoActual(nuevoMonto);
+            if (completada) {
+                dto.setEstado(MetaAhorro.EstadoMeta.COMPLETADA.name());
+            }
             return ApiResponse.success("Abono realizado exitosamente", dto);
         } catch (Exception e) {
             return ApiResponse.error("Error al abonar a la meta: " + e.getMessage());
@@ -108,7 +112,7 @@ public class MetaAhorroService {
 
     public ApiResponse<MetaAhorroDTO> actualizarMeta(Long id, MetaAhorroDTO metaDTO) {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getReferencia();
             
             MetaAhorro meta = metaAhorroRepository.findById(id)
                 .orElse(null);
@@ -140,7 +144,7 @@ public class MetaAhorroService {
 
     public ApiResponse<String> eliminarMeta(Long id) {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getReferencia();
             MetaAhorro meta = metaAhorroRepository.findById(id)
                 .orElse(null);
             if (meta == null || !meta.getUsuario().getId().equals(usuario.getId())) {
@@ -156,11 +160,10 @@ public class MetaAhorroService {
             // Si la meta está activa, cancelar y devolver dinero
             double montoADevolver = meta.getMontoActual() != null ? meta.getMontoActual() : 0.0;
             if (montoADevolver > 0) {
-                usuario.setSaldo(usuario.getSaldo() + montoADevolver);
+                usuarioRepository.ajustarSaldo(usuario.getId(), montoADevolver);
             }
             meta.setEstado(MetaAhorro.EstadoMeta.CANCELADA);
             meta.setMontoActual(0.0);
-            usuarioRepository.save(usuario);
             metaAhorroRepository.save(meta);
             return ApiResponse.success("Meta cancelada y dinero devuelto al saldo");
         } catch (Exception e) {
@@ -177,28 +180,22 @@ public class MetaAhorroService {
                 // Distribuir el ingreso proporcionalmente entre las metas activas
                 Double porcentajeDistribucion = 0.1; // 10% del ingreso para cada meta
                 Double montoParaMeta = montoIngreso * porcentajeDistribucion;
-                
-                meta.setMontoActual(meta.getMontoActual() + montoParaMeta);
-                
+
+                // Suma atómica: no pisa un abono concurrente a la misma meta
+                if (metaAhorroRepository.sumarMonto(meta.getId(), montoParaMeta, false) == 0) {
+                    continue;
+                }
+
                 // Verificar si se completó la meta
-                if (meta.getMontoActual() >= meta.getMontoObjetivo() && meta.getEstado() != MetaAhorro.EstadoMeta.COMPLETADA) {
-                    meta.setEstado(MetaAhorro.EstadoMeta.COMPLETADA);
+                if (metaAhorroRepository.completarSiAlcanzada(meta.getId()) > 0) {
                     notificacionService.enviarNotificacionMetaCompletada(usuarioId, meta.getNombre());
                 }
-                
-                metaAhorroRepository.save(meta);
             }
         } catch (Exception e) {
             System.err.println("Error al actualizar metas con ingreso: " + e.getMessage());
         }
     }
 
-    private Usuario obtenerUsuarioAutenticado() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        return usuarioRepository.findById(userPrincipal.getId())
-            .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-    }
 
     private MetaAhorroDTO convertirAMetaAhorroDTO(MetaAhorro meta) {
         MetaAhorroDTO dto = new MetaAhorroDTO();
@@ -0,0 +1,80 @@
+package com.midinero.service;
+
+import com.midinero.entity.Notificacion;
+import com.midinero.repository.NotificacionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Persiste las notificaciones en lotes desde una cola acotada, fuera del hilo que las genera.
+// Si la cola se llena, la notificación se escribe en el hilo del llamador (no se pierde).
+// La cola vive en memoria: en un cierre ordenado se vacía (@PreDestroy), pero si el proceso muere
+// (kill -9, OOM, caída del host) se pierde lo encolado desde el último vaciado, es decir, lo generado en
+// los últimos notificaciones.escritura.intervalo-ms más lo que tarde la escritura. El aviso por WebSocket
+// ya salió, pero no quedará en la bandeja. Se acepta para notificaciones, que son derivables de los datos.
+@Component
+public class NotificacionEscritor {
+
+    private final NotificacionRepository notificacionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Notificacion> pendientes;
+    private final int tamanioLote;
+    private final Counter escriturasDirectas;
+
+    @Autowired
+    public NotificacionEscritor(NotificacionRepository notificacionRepository,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${notificaciones.escritura.capacidad-cola:10000}") int capacidadCola,
+                                @Value("${notificaciones.escritura.tamanio-lote:200}") int tamanioLote) {
+        this.notificacionRepository = notificacionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.pendientes = new ArrayBlockingQueue<>(capacidadCola);
+        this.tamanioLote = tamanioLote;
+        this.escriturasDirectas = Counter.builder("notificaciones.escritura.directas")
+                .description("Notificaciones escritas en el hilo del llamador por cola llena")
+                .register(meterRegistry);
+        meterRegistry.gaugeCollectionSize("notificaciones.escritura.pendientes", Tags.empty(), pendientes);
+    }
+
+    public void encolar(Notificacion notificacion) {
+        if (!pendientes.offer(notificacion)) {
+            escriturasDirectas.increment();
+            guardar(List.of(notificacion));
+        }
+    }
+
+    // Estado local del nodo: corre en todas las réplicas, sin lease
+    @Scheduled(fixedDelayString = "${notificaciones.escritura.intervalo-ms:500}")
+    public void vaciar() {
+        List<Notificacion> lote = new ArrayList<>(tamanioLote);
+        while (pendientes.drainTo(lote, tamanioLote) > 0) {
+            guardar(lote);
+            lote.clear();
+        }
+    }
+
+    @PreDestroy
+    public void alCerrar() {
+        vaciar();
+    }
+
+    private void guardar(List<Notificacion> lote) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> notificacionRepository.saveAll(lote));
+        } catch (Exception e) {
+            System.err.println("Error al guardar " + lote.size() + " notificaciones: " + e.getMessage());
+        }
+    }
+}
@@ -1,12 +1,32 @@
 package com.midinero.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.midinero.dto.ApiResponse;
+import com.midinero.dto.NotificacionDTO;
+import com.midinero.dto.PaginaDTO;
+import com.midinero.entity.Notificacion;
+import com.midinero.repository.NotificacionRepository;
+import com.midinero.security.UsuarioAutenticadoContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 @Service
 public class NotificacionService {
@@ -14,22 +34,100 @@ public class NotificacionService {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
-    public void enviarNotificacionPresupuestoExcedido(Long usuarioId, String categoria, Double gastoActual, Double limite) {
+    @Autowired
+    private NotificacionEscritor notificacionEscritor;
+
+    @Autowired
+    private SesionesWebSocketService sesionesWebSocket;
+
+    @Autowired
+    private NotificacionRepository notificacionRepository;
+
+    @Autowired
+    private UsuarioAutenticadoContext usuarioAutenticado;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("notificacionesScheduler")
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Avisos de presupuesto que llegan dentro de la ventana se funden en un único mensaje
+    @Value("${notificaciones.coalescencia.ventana-ms:5000}")
+    private long ventanaCoalescenciaMs;
+
+    private final Map<ClaveAlerta, AlertaPresupuesto> alertasPendientes = new ConcurrentHashMap<>();
+    private Counter alertasCoalescidas;
+    private Counter enviosOmitidos;
+
+    @Value("${notificaciones.pagina.tamanio-default:50}")
+    private int tamanioPaginaDefault;
+
+    @Value("${notificaciones.pagina.tamanio-max:200}")
+    private int tamanioPaginaMax;
+
+    @PostConstruct
+    public void registrarMetricas() {
+        alertasCoalescidas = Counter.builder("notificaciones.coalescidas")
+                .description("Avisos de presupuesto fundidos con otro pendiente del mismo usuario y categoría")
+                .register(meterRegistry);
+        enviosOmitidos = Counter.builder("notificaciones.envios.omitidos")
+                .description("Notificaciones no enviadas por WebSocket porque el usuario no tenía sesión abierta")
+                .register(meterRegistry);
+    }
+
+    // umbral: porcentaje del límite alcanzado (80, 100 o 120)
+    public void enviarNotificacionPresupuesto(Long usuarioId, String categoria, Double gastoActual, Double limite, int umbral) {
+        if (ventanaCoalescenciaMs <= 0) {
+            publicarAlertaPresupuesto(usuarioId, categoria, new AlertaPresupuesto(gastoActual, limite, umbral));
+            return;
+        }
+
+        ClaveAlerta clave = new ClaveAlerta(usuarioId, categoria);
+        alertasPendientes.compute(clave, (k, pendiente) -> {
+            if (pendiente == null) {
+                taskScheduler.schedule(() -> vaciarAlerta(clave),
+                        Instant.now().plus(Duration.ofMillis(ventanaCoalescenciaMs)));
+                return new AlertaPresupuesto(gastoActual, limite, umbral);
+            }
+            alertasCoalescidas.increment();
+            pendiente.fusionar(gastoActual, limite, umbral);
+            return pendiente;
+        });
+    }
+
+    private void vaciarAlerta(ClaveAlerta clave) {
+        AlertaPresupuesto alerta = alertasPendientes.remove(clave);
+        if (alerta != null) {
+            publicarAlertaPresupuesto(clave.usuarioId(), clave.categoria(), alerta);
+        }
+    }
+
+    private void publicarAlertaPresupuesto(Long usuarioId, String categoria, AlertaPresupuesto alerta) {
         Map<String, Object> notificacion = new HashMap<>();
-        notificacion.put("tipo", "PRESUPUESTO_EXCEDIDO");
-        notificacion.put("titulo", "Presupuesto Excedido");
-        notificacion.put("mensaje", String.format("Has excedido el presupuesto de %s. Gasto actual: $%.2f, Límite: $%.2f", 
-            categoria, gastoActual, limite));
+        if (alerta.umbral >= 100) {
+            notificacion.put("tipo", "PRESUPUESTO_EXCEDIDO");
+            notificacion.put("titulo", alerta.umbral > 100 ? "Presupuesto superado en más de 20%" : "Presupuesto Excedido");
+            notificacion.put("mensaje", String.format("Has excedido el presupuesto de %s. Gasto actual: $%.2f, Límite: $%.2f", 
+                categoria, alerta.gastoActual, alerta.limite));
+        } else {
+            notificacion.put("tipo", "PRESUPUESTO_CERCA_DEL_LIMITE");
+            notificacion.put("titulo", "Presupuesto al " + alerta.umbral + "%");
+            notificacion.put("mensaje", String.format("Has usado el %d%% del presupuesto de %s. Gasto actual: $%.2f, Límite: $%.2f",
+                alerta.umbral, categoria, alerta.gastoActual, alerta.limite));
+        }
         notificacion.put("categoria", categoria);
-        notificacion.put("gastoActual", gastoActual);
-        notificacion.put("limite", limite);
+        notificacion.put("gastoActual", alerta.gastoActual);
+        notificacion.put("limite", alerta.limite);
+        notificacion.put("umbral", alerta.umbral);
+        notificacion.put("agrupadas", alerta.agrupadas);
         notificacion.put("fecha", LocalDateTime.now());
 
-        messagingTemplate.convertAndSendToUser(
-            usuarioId.toString(), 
-            "/notifications", 
-            notificacion
-        );
+        publicar(usuarioId, notificacion);
     }
 
     public void enviarNotificacionMetaCompletada(Long usuarioId, String nombreMeta) {
@@ -40,10 +138,114 @@ public class NotificacionService {
         notificacion.put("nombreMeta", nombreMeta);
         notificacion.put("fecha", LocalDateTime.now());
 
-        messagingTemplate.convertAndSendToUser(
-            usuarioId.toString(), 
-            "/notifications", 
-            notificacion
-        );
+        publicar(usuarioId, notificacion);
+    }
+
+    // No leídas con id mayor que "since" (cursor keyset), en orden de id. Los ids salen de bloques de la
+    // secuencia reservados por cada réplica y se escriben en lotes, así que no siguen el orden de llegada
+    // entre nodos: una notificación nueva puede tener un id menor que el cursor y no aparecer en ese recorrido.
+    // Como sigue sin leer, aparece en el siguiente recorrido completo (sin since).
+    @Transactional(readOnly = true)
+    public ApiResponse<PaginaDTO<NotificacionDTO>> obtenerNoLeidas(Long since, Integer size) {
+        try {
+            Long usuarioId = usuarioAutenticado.getUsuarioId();
+            int tamanio = (size == null || size <= 0) ? tamanioPaginaDefault : Math.min(size, tamanioPaginaMax);
+
+            // Se pide un registro extra para saber si existe una página siguiente
+            List<Notificacion> notificaciones = notificacionRepository.findNoLeidas(
+                    usuarioId, since != null ? since : 0L, PageRequest.of(0, tamanio + 1));
+
+            String nextCursor = null;
+            if (notificaciones.size() > tamanio) {
+                notificaciones = notificaciones.subList(0, tamanio);
+                nextCursor = String.valueOf(notificaciones.get(tamanio - 1).getId());
+            }
+
+            List<NotificacionDTO> dtos = notificaciones.stream()
+                    .map(this::convertirANotificacionDTO)
+                    .collect(Collectors.toList());
+
+            return ApiResponse.success("Notificaciones obtenidas exitosamente", new PaginaDTO<>(dtos, nextCursor));
+        } catch (Exception e) {
+            return ApiResponse.error("Error al obtener las notificaciones");
+        }
+    }
+
+    @Transactional
+    public ApiResponse<Integer> marcarLeidas(List<Long> ids) {
+        try {
+            if (ids == null || ids.isEmpty()) {
+                return ApiResponse.success("Notificaciones marcadas como leídas", 0);
+            }
+            if (ids.size() > tamanioPaginaMax) {
+                return ApiResponse.error("No se pueden marcar más de " + tamanioPaginaMax + " notificaciones a la vez");
+            }
+            int marcadas = notificacionRepository.marcarLeidas(usuarioAutenticado.getUsuarioId(), ids);
+            return ApiResponse.success("Notificaciones marcadas como leídas", marcadas);
+        } catch (Exception e) {
+            return ApiResponse.error("Error al marcar las notificaciones");
+        }
+    }
+
+    // Envío en vivo por STOMP (camino rápido) y copia en la bandeja para quien no esté conectado
+    private void publicar(Long usuarioId, Map<String, Object> notificacion) {
+        // Sin sesión abierta no se serializa ni se entrega al broker; el cliente la lee de la bandeja al conectar
+        if (sesionesWebSocket.estaConectado(usuarioId)) {
+            messagingTemplate.convertAndSendToUser(
+                usuarioId.toString(), 
+                "/queue/notifications", 
+                notificacion
+            );
+        } else {
+            enviosOmitidos.increment();
+        }
+
+        try {
+            notificacionEscritor.encolar(new Notificacion(
+                    usuarioId,
+                    (String) notificacion.get("tipo"),
+                    (String) notificacion.get("titulo"),
+                    (String) notificacion.get("mensaje"),
+                    objectMapper.writeValueAsString(notificacion),
+                    (LocalDateTime) notificacion.get("fecha")));
+        } catch (Exception e) {
+            System.err.println("Error al guardar la notificación: " + e.getMessage());
+        }
+    }
+
+    private record ClaveAlerta(Long usuarioId, String categoria) {}
+
+    // Se modifica solo dentro de alertasPendientes.compute, que serializa el acceso por clave
+    private static final class AlertaPresupuesto {
+        private Double gastoActual;
+        private Double limite;
+        private int umbral;
+        private int agrupadas = 1;
+
+        private AlertaPresupuesto(Double gastoActual, Double limite, int umbral) {
+            this.gastoActual = gastoActual;
+            this.limite = limite;
+            this.umbral = umbral;
+        }
+
+        // Se conserva el último estado del gasto y el mayor umbral alcanzado
+        private void fusionar(Double gastoActual, Double limite, int umbral) {
+            this.gastoActual = gastoActual;
+            this.limite = limite;
+            this.umbral = Math.max(this.umbral, umbral);
+            this.agrupadas++;
+        }
+    }
+
+    private NotificacionDTO convertirANotificacionDTO(Notificacion n) {
+        NotificacionDTO dto = new NotificacionDTO();
+        dto.setId(n.getId());
+        dto.setTipo(n.getTipo());
+        dto.setTitulo(n.getTitulo());
+        dto.setMensaje(n.getMensaje());
+        dto.setDatos(n.getDatos());
+        dto.setLeida(n.getLeida());
+        dto.setFecha(n.getFecha());
+        return dto;
     }
 }
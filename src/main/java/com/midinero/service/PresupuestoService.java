@@ -6,44 +6,43 @@ import com.midinero.entity.Presupuesto;
 import com.midinero.entity.Transaccion;
 import com.midinero.entity.Usuario;
 import com.midinero.repository.PresupuestoRepository;
-import com.midinero.repository.TransaccionRepository;
-import com.midinero.repository.UsuarioRepository;
-import com.midinero.security.UserPrincipal;
+import com.midinero.security.UsuarioAutenticadoContext;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class PresupuestoService {
 
+    // Porcentajes del límite que generan aviso, de mayor a menor
+    private static final int[] UMBRALES = {120, 100, 80};
+
     @Autowired
-    private PresupuestoRepository presupuestoRepository;
+    private UsuarioAutenticadoContext usuarioAutenticado;
 
     @Autowired
-    private TransaccionRepository transaccionRepository;
+    private PresupuestoRepository presupuestoRepository;
 
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private GastoMensualService gastoMensualService;
 
     @Autowired
     private NotificacionService notificacionService;
 
     public ApiResponse<List<PresupuestoDTO>> obtenerPresupuestos() {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getReferencia();
             List<Presupuesto> presupuestos = presupuestoRepository.findByUsuarioId(usuario.getId());
             
-            List<PresupuestoDTO> presupuestosDTO = presupuestos.stream()
-                .map(this::convertirAPresupuestoDTO)
-                .collect(Collectors.toList());
+            List<PresupuestoDTO> presupuestosDTO = convertirAPresupuestosDTO(usuario.getId(), presupuestos);
 
             return ApiResponse.success("Presupuestos obtenidos exitosamente", presupuestosDTO);
         } catch (Exception e) {
@@ -53,7 +52,7 @@ public class PresupuestoService {
 
     public ApiResponse<PresupuestoDTO> crearPresupuesto(PresupuestoDTO presupuestoDTO) {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getReferencia();
 
             // Verificar si ya existe un presupuesto para esa categoría y mes
             if (presupuestoRepository.findByUsuarioIdAndCategoriaAndMes(
@@ -66,9 +65,13 @@ public class PresupuestoService {
             presupuesto.setCategoria(presupuestoDTO.getCategoria());
             presupuesto.setLimite(presupuestoDTO.getLimite());
             presupuesto.setMes(presupuestoDTO.getMes());
+            // Con el nuevo límite solo se avisarán los umbrales que aún no se alcanzaron
+            presupuesto.setUmbralNotificado(umbralAlcanzado(
+                    calcularGastoActual(usuario.getId(), presupuesto.getCategoria(), presupuesto.getMes()),
+                    presupuesto.getLimite()));
 
             Presupuesto presupuestoGuardado = presupuestoRepository.save(presupuesto);
-            PresupuestoDTO responseDTO = convertirAPresupuestoDTO(presupuestoGuardado);
+            PresupuestoDTO responseDTO = convertirAPresupuestosDTO(usuario.getId(), List.of(presupuestoGuardado)).get(0);
 
             return ApiResponse.success("Presupuesto creado exitosamente", responseDTO);
         } catch (Exception e) {
@@ -78,7 +81,7 @@ public class PresupuestoService {
 
     public ApiResponse<PresupuestoDTO> actualizarPresupuesto(Long id, PresupuestoDTO presupuestoDTO) {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getReferencia();
             
             Presupuesto presupuesto = presupuestoRepository.findById(id)
                 .orElse(null);
@@ -90,9 +93,13 @@ public class PresupuestoService {
             presupuesto.setCategoria(presupuestoDTO.getCategoria());
             presupuesto.setLimite(presupuestoDTO.getLimite());
             presupuesto.setMes(presupuestoDTO.getMes());
+            // Con el nuevo límite solo se avisarán los umbrales que aún no se alcanzaron
+            presupuesto.setUmbralNotificado(umbralAlcanzado(
+                    calcularGastoActual(usuario.getId(), presupuesto.getCategoria(), presupuesto.getMes()),
+                    presupuesto.getLimite()));
 
             Presupuesto presupuestoActualizado = presupuestoRepository.save(presupuesto);
-            PresupuestoDTO responseDTO = convertirAPresupuestoDTO(presupuestoActualizado);
+            PresupuestoDTO responseDTO = convertirAPresupuestosDTO(usuario.getId(), List.of(presupuestoActualizado)).get(0);
 
             return ApiResponse.success("Presupuesto actualizado exitosamente", responseDTO);
         } catch (Exception e) {
@@ -102,7 +109,7 @@ public class PresupuestoService {
 
     public ApiResponse<String> eliminarPresupuesto(Long id) {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getReferencia();
             
             Presupuesto presupuesto = presupuestoRepository.findById(id)
                 .orElse(null);
@@ -128,9 +135,11 @@ public class PresupuestoService {
 
             if (presupuesto != null) {
                 Double gastoActual = calcularGastoActual(usuarioId, categoria, mesActual);
-                
-                if (gastoActual > presupuesto.getLimite()) {
-                    notificacionService.enviarNotificacionPresupuestoExcedido(usuarioId, categoria, gastoActual, presupuesto.getLimite());
+                int umbral = umbralAlcanzado(gastoActual, presupuesto.getLimite());
+
+                if (umbral > presupuesto.getUmbralNotificado()
+                        && presupuestoRepository.elevarUmbralNotificado(presupuesto.getId(), umbral) == 1) {
+                    notificacionService.enviarNotificacionPresupuesto(usuarioId, categoria, gastoActual, presupuesto.getLimite(), umbral);
                 }
             }
         } catch (Exception e) {
@@ -138,30 +147,40 @@ public class PresupuestoService {
         }
     }
 
+    private static int umbralAlcanzado(Double gasto, Double limite) {
+        double porcentaje = gasto / limite * 100;
+        for (int umbral : UMBRALES) {
+            if (porcentaje >= umbral) {
+                return umbral;
+            }
+        }
+        return 0;
+    }
+
     private Double calcularGastoActual(Long usuarioId, String categoria, String mes) {
-        LocalDateTime inicioMes = LocalDateTime.parse(mes + "-01T00:00:00");
-        LocalDateTime finMes = inicioMes.plusMonths(1).minusSeconds(1);
+        return gastoMensualService.obtenerTotal(usuarioId, categoria, mes, Transaccion.TipoTransaccion.GASTO);
+    }
 
-        Double gasto = transaccionRepository.sumByUsuarioIdAndTipoAndCategoriaAndFechaBetween(
-            usuarioId, Transaccion.TipoTransaccion.GASTO, categoria, inicioMes, finMes);
 
-        return gasto != null ? gasto : 0.0;
-    }
+    // Resuelve el gasto de todos los presupuestos con una sola consulta y lo cruza en memoria
+    private List<PresupuestoDTO> convertirAPresupuestosDTO(Long usuarioId, List<Presupuesto> presupuestos) {
+        Set<String> meses = presupuestos.stream()
+            .map(Presupuesto::getMes)
+            .collect(Collectors.toSet());
+        Map<String, Double> gastos = gastoMensualService.obtenerTotales(usuarioId, meses, Transaccion.TipoTransaccion.GASTO);
 
-    private Usuario obtenerUsuarioAutenticado() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        return usuarioRepository.findById(userPrincipal.getId())
-            .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        return presupuestos.stream()
+            .map(p -> convertirAPresupuestoDTO(p, gastos.getOrDefault(GastoMensualService.clave(p.getCategoria(), p.getMes()), 0.0)))
+            .collect(Collectors.toList());
     }
 
-    private PresupuestoDTO convertirAPresupuestoDTO(Presupuesto presupuesto) {
+    private PresupuestoDTO convertirAPresupuestoDTO(Presupuesto presupuesto, Double gastoActual) {
         PresupuestoDTO dto = new PresupuestoDTO();
         dto.setId(presupuesto.getId());
         dto.setCategoria(presupuesto.getCategoria());
         dto.setLimite(presupuesto.getLimite());
         dto.setMes(presupuesto.getMes());
-        dto.setGastoActual(calcularGastoActual(presupuesto.getUsuario().getId(), presupuesto.getCategoria(), presupuesto.getMes()));
+        dto.setGastoActual(gastoActual);
         return dto;
     }
 }
@@ -0,0 +1,91 @@
+package com.midinero.service;
+
+import com.midinero.repository.SchedulerLockRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+// Coordina las tareas @Scheduled entre réplicas con un lease en scheduler_lock: cada ejecución
+// la hace un solo nodo. Las tareas que mantienen estado local del nodo (cachés) no deben usarlo.
+@Service
+public class SchedulerLockService {
+
+    private final SchedulerLockRepository schedulerLockRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String nodo;
+
+    @Autowired
+    public SchedulerLockService(SchedulerLockRepository schedulerLockRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry) {
+        this.schedulerLockRepository = schedulerLockRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.meterRegistry = meterRegistry;
+        this.nodo = identificarNodo();
+    }
+
+    // maximo: cuánto dura el lease si el nodo muere a mitad de la tarea.
+    // minimo: cuánto se retiene aunque la tarea termine antes, para que otro nodo con el reloj
+    // algo desfasado no la repita en el mismo intervalo. Debe ser menor que el intervalo de la tarea.
+    public boolean ejecutarConLease(String nombre, Duration maximo, Duration minimo, Runnable tarea) {
+        LocalDateTime inicio = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        if (!tomar(nombre, inicio, inicio.plus(maximo))) {
+            return false;
+        }
+
+        long comienzo = System.nanoTime();
+        try {
+            tarea.run();
+        } finally {
+            long duracionMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - comienzo);
+            LocalDateTime fin = LocalDateTime.now();
+            LocalDateTime hasta = fin.isAfter(inicio.plus(minimo)) ? fin : inicio.plus(minimo);
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        schedulerLockRepository.liberar(nombre, nodo, inicio, hasta, duracionMs));
+            } catch (Exception e) {
+                // El lease vence solo al llegar a bloqueado_hasta
+                System.err.println("No se pudo liberar el lease de " + nombre + ": " + e.getMessage());
+            }
+            Timer.builder("programado.ejecucion").tag("tarea", nombre)
+                    .register(meterRegistry)
+                    .record(duracionMs, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    private boolean tomar(String nombre, LocalDateTime ahora, LocalDateTime hasta) {
+        try {
+            Integer tomado = transactionTemplate.execute(status -> {
+                int filas = schedulerLockRepository.tomar(nombre, nodo, ahora, hasta);
+                return filas > 0 ? filas : schedulerLockRepository.crear(nombre, nodo, ahora, hasta);
+            });
+            return tomado != null && tomado > 0;
+        } catch (Exception e) {
+            System.err.println("No se pudo tomar el lease de " + nombre + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static String identificarNodo() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "desconocido";
+        }
+        return host + ":" + ProcessHandle.current().pid();
+    }
+}
@@ -0,0 +1,94 @@
+package com.midinero.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sesiones STOMP vivas en este nodo por id de usuario. Permite saltarse el envío por WebSocket
+// cuando el usuario no tiene ninguna conexión abierta (la notificación igual queda en la bandeja).
+// Con el relay activo el usuario puede estar conectado a otro nodo: se consulta además el
+// registro global que los nodos difunden por el broker.
+@Service
+public class SesionesWebSocketService {
+
+    private final Map<Long, Set<String>> sesionesPorUsuario = new ConcurrentHashMap<>();
+    private final AtomicInteger sesionesAbiertas = new AtomicInteger();
+    private final SimpUserRegistry registroUsuarios;
+    private final boolean relayHabilitado;
+
+    public SesionesWebSocketService(MeterRegistry meterRegistry,
+                                    SimpUserRegistry registroUsuarios,
+                                    @Value("${websocket.broker.relay.habilitado:false}") boolean relayHabilitado) {
+        this.registroUsuarios = registroUsuarios;
+        this.relayHabilitado = relayHabilitado;
+        Gauge.builder("websocket.sesiones.conectadas", sesionesAbiertas, AtomicInteger::get)
+                .description("Sesiones STOMP autenticadas abiertas en este nodo")
+                .register(meterRegistry);
+        Gauge.builder("websocket.usuarios.conectados", sesionesPorUsuario, Map::size)
+                .description("Usuarios con al menos una sesión STOMP abierta en este nodo")
+                .register(meterRegistry);
+    }
+
+    public boolean estaConectado(Long usuarioId) {
+        if (sesionesPorUsuario.containsKey(usuarioId)) {
+            return true;
+        }
+        return relayHabilitado && registroUsuarios.getUser(usuarioId.toString()) != null;
+    }
+
+    @EventListener
+    public void alConectar(SessionConnectedEvent event) {
+        Long usuarioId = usuarioDe(event.getUser());
+        String sesionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (usuarioId == null || sesionId == null) {
+            return;
+        }
+        sesionesPorUsuario.compute(usuarioId, (id, sesiones) -> {
+            Set<String> actuales = sesiones != null ? sesiones : new HashSet<>();
+            if (actuales.add(sesionId)) {
+                sesionesAbiertas.incrementAndGet();
+            }
+            return actuales;
+        });
+    }
+
+    // Puede llegar más de una vez por sesión; solo la primera descuenta
+    @EventListener
+    public void alDesconectar(SessionDisconnectEvent event) {
+        Long usuarioId = usuarioDe(event.getUser());
+        if (usuarioId == null) {
+            return;
+        }
+        sesionesPorUsuario.computeIfPresent(usuarioId, (id, sesiones) -> {
+            if (sesiones.remove(event.getSessionId())) {
+                sesionesAbiertas.decrementAndGet();
+            }
+            return sesiones.isEmpty() ? null : sesiones;
+        });
+    }
+
+    // El nombre del principal STOMP es el id del usuario (ver StompAutenticacionInterceptor)
+    private Long usuarioDe(Principal user) {
+        if (user == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(user.getName());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
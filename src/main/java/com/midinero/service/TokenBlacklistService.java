@@ -2,12 +2,18 @@ package com.midinero.service;
 
 import com.midinero.entity.TokenBlacklist;
 import com.midinero.repository.TokenBlacklistRepository;
+import com.midinero.security.JwtTokenProvider;
+import com.midinero.security.TokensRevocadosCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
 
 @Service
 @Transactional
@@ -16,18 +22,49 @@ public class TokenBlacklistService {
     @Autowired
     private TokenBlacklistRepository tokenBlacklistRepository;
 
+    @Autowired
+    private TokensRevocadosCache tokensRevocadosCache;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private LimpiezaPorLotes limpiezaPorLotes;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
     public void blacklistToken(String token) {
-        TokenBlacklist tokenBlacklist = new TokenBlacklist(token);
-        tokenBlacklistRepository.save(tokenBlacklist);
+        Date expiracion = tokenProvider.getExpiracion(token);
+        if (expiracion == null || expiracion.before(new Date())) {
+            return; // un token inválido o ya expirado no necesita revocarse
+        }
+
+        String huella = TokensRevocadosCache.huella(token);
+        if (tokenBlacklistRepository.existsByTokenHash(huella)) {
+            return;
+        }
+        LocalDateTime fechaExpiracion = LocalDateTime.ofInstant(expiracion.toInstant(), ZoneId.systemDefault());
+        tokenBlacklistRepository.save(new TokenBlacklist(huella, fechaExpiracion));
+        tokensRevocadosCache.registrar(huella, fechaExpiracion);
     }
 
+    // Se llama en cada petición autenticada: normalmente se resuelve en memoria sin abrir transacción
+    @Transactional(propagation = Propagation.SUPPORTS)
     public boolean isTokenBlacklisted(String token) {
-        return tokenBlacklistRepository.existsByToken(token);
+        return tokensRevocadosCache.estaRevocado(token);
     }
 
-    @Scheduled(fixedRate = 3600000) // Ejecutar cada hora
+    // Un token revocado deja de importar en cuanto expira: a partir de ahí la firma ya lo rechaza
+    // En punto de cada hora: con fixedRate cada réplica contaba la hora desde su propio arranque y
+    // la ejecutaba en un momento distinto, así que el lease no impedía que corriera una vez por nodo.
+    // El mínimo de 55 min cubre el desfase de relojes entre réplicas sin pisar la hora siguiente.
+    @Scheduled(cron = "0 0 * * * *")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void limpiarTokensExpirados() {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(1);
-        tokenBlacklistRepository.deleteByFechaBloqueoBefore(cutoffDate);
+        schedulerLockService.ejecutarConLease("limpiar-tokens-revocados", Duration.ofMinutes(30), Duration.ofMinutes(55), () -> {
+            LocalDateTime corte = LocalDateTime.now();
+            limpiezaPorLotes.ejecutar("tokens_revocados", limite -> tokenBlacklistRepository.eliminarExpirados(corte, limite));
+        });
     }
 }
@@ -0,0 +1,58 @@
+package com.midinero.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Utilidades mínimas de CSV (RFC 4180 sin saltos de línea dentro de los campos)
+final class TransaccionCsv {
+
+    static final String CABECERA = "id,fecha,tipo,categoria,monto,descripcion,anulada";
+
+    private TransaccionCsv() {}
+
+    static String escapar(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        // Los saltos de línea se aplanan para mantener una fila por línea
+        String limpio = valor.replace("\r", " ").replace("\n", " ").replace("\"", "\"\"");
+        return "\"" + limpio + "\"";
+    }
+
+    static List<String> separarCampos(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"') {
+                    if (i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                        actual.append('"');
+                        i++;
+                    } else {
+                        entreComillas = false;
+                    }
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        campos.add(actual.toString());
+        return campos;
+    }
+}
@@ -1,18 +1,26 @@
 package com.midinero.service;
 
 import com.midinero.dto.ApiResponse;
+import com.midinero.dto.FiltroTransaccionDTO;
+import com.midinero.dto.PaginaDTO;
 import com.midinero.dto.TransaccionDTO;
 import com.midinero.entity.Transaccion;
 import com.midinero.entity.Usuario;
+import com.midinero.event.TransaccionRegistradaEvent;
 import com.midinero.repository.TransaccionRepository;
 import com.midinero.repository.UsuarioRepository;
-import com.midinero.security.UserPrincipal;
+import com.midinero.security.UsuarioAutenticadoContext;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -20,6 +28,9 @@ import java.util.stream.Collectors;
 @Transactional
 public class TransaccionService {
 
+    @Autowired
+    private UsuarioAutenticadoContext usuarioAutenticado;
+
     @Autowired
     private TransaccionRepository transaccionRepository;
 
@@ -27,22 +38,64 @@ public class TransaccionService {
     private UsuarioRepository usuarioRepository;
 
     @Autowired
-    private PresupuestoService presupuestoService;
+    private ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    private MetaAhorroService metaAhorroService;
+    private GastoMensualService gastoMensualService;
+
+    @Value("${transacciones.pagina.tamanio-default:50}")
+    private int tamanioPaginaDefault;
 
-    public ApiResponse<List<TransaccionDTO>> obtenerTransacciones() {
+    @Value("${transacciones.pagina.tamanio-max:200}")
+    private int tamanioPaginaMax;
+
+    public ApiResponse<PaginaDTO<TransaccionDTO>> obtenerTransacciones(FiltroTransaccionDTO filtro, String cursor, Integer size) {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
-            List<Transaccion> transacciones =
-                    transaccionRepository.findByUsuarioIdOrderByFechaDesc(usuario.getId());
+            Usuario usuario = usuarioAutenticado.getReferencia();
+
+            int tamanio = (size == null || size <= 0) ? tamanioPaginaDefault : Math.min(size, tamanioPaginaMax);
+            // Se pide un registro extra para saber si existe una página siguiente
+            PageRequest limite = PageRequest.of(0, tamanio + 1);
+
+            CursorTransaccion posicion = null;
+            if (cursor != null && !cursor.isBlank()) {
+                posicion = decodificarCursor(cursor);
+                if (posicion == null) {
+                    return ApiResponse.error("Cursor de paginación inválido");
+                }
+            }
+
+            if (filtro.getDesde() != null && filtro.getHasta() != null && filtro.getDesde().isAfter(filtro.getHasta())) {
+                return ApiResponse.error("La fecha inicial no puede ser posterior a la final");
+            }
+            // "hasta" es inclusivo: se consulta hasta el inicio del día siguiente
+            LocalDateTime desde = filtro.getDesde() != null ? filtro.getDesde().atStartOfDay() : null;
+            LocalDateTime hasta = filtro.getHasta() != null ? filtro.getHasta().plusDays(1).atStartOfDay() : null;
+            String categoria = (filtro.getCategoria() != null && !filtro.getCategoria().isBlank())
+                    ? filtro.getCategoria().trim() : null;
+
+            List<Transaccion> transacciones = transaccionRepository.findHistorial(
+                    usuario.getId(),
+                    Boolean.TRUE.equals(filtro.getIncluirAnuladas()),
+                    desde,
+                    hasta,
+                    filtro.getTipo(),
+                    categoria,
+                    posicion != null ? posicion.fecha() : null,
+                    posicion != null ? posicion.id() : null,
+                    limite);
+
+            String nextCursor = null;
+            if (transacciones.size() > tamanio) {
+                transacciones = transacciones.subList(0, tamanio);
+                nextCursor = codificarCursor(transacciones.get(tamanio - 1));
+            }
 
             List<TransaccionDTO> dtos = transacciones.stream()
                     .map(this::convertirATransaccionDTO)
                     .collect(Collectors.toList());
 
-            return ApiResponse.success("Transacciones obtenidas exitosamente", dtos);
+            return ApiResponse.success("Transacciones obtenidas exitosamente", new PaginaDTO<>(dtos, nextCursor));
         } catch (Exception e) {
             return ApiResponse.error("Error al obtener las transacciones");
         }
@@ -50,7 +103,7 @@ public class TransaccionService {
 
     public ApiResponse<TransaccionDTO> crearTransaccion(TransaccionDTO dto) {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getReferencia();
 
             // Validaciones básicas
             if (dto.getMonto() == null || dto.getMonto() <= 0) {
@@ -60,17 +113,10 @@ public class TransaccionService {
                 return ApiResponse.error("El tipo de transacción es obligatorio");
             }
 
-            // Ajuste de saldo
-            Double saldoActual = usuario.getSaldo() != null ? usuario.getSaldo() : 0.0;
-            if (dto.getTipo() == Transaccion.TipoTransaccion.GASTO) {
-                if (saldoActual < dto.getMonto()) {
-                    return ApiResponse.error("Saldo insuficiente");
-                }
-                usuario.setSaldo(saldoActual - dto.getMonto());
-            } else { // INGRESO
-                usuario.setSaldo(saldoActual + dto.getMonto());
+            // Ajuste de saldo atómico: el UPDATE condicional no se aplica si el saldo quedaría negativo
+            if (usuarioRepository.ajustarSaldo(usuario.getId(), efectoEnSaldo(dto.getTipo(), dto.getMonto())) == 0) {
+                return ApiResponse.error("Saldo insuficiente");
             }
-            usuarioRepository.save(usuario);
 
             // Crear transacción
             Transaccion t = new Transaccion();
@@ -80,13 +126,11 @@ public class TransaccionService {
             t.setMonto(dto.getMonto());       // entidad debe tener Double
             t.setDescripcion(dto.getDescripcion());
             Transaccion guardada = transaccionRepository.save(t);
+            gastoMensualService.registrar(guardada);
 
-            // Reglas adicionales
-            if (t.getTipo() == Transaccion.TipoTransaccion.GASTO) {
-                presupuestoService.verificarPresupuesto(usuario.getId(), t.getCategoria(), t.getMonto());
-            } else {
-                metaAhorroService.actualizarMetasConIngreso(usuario.getId(), t.getMonto());
-            }
+            // Reglas adicionales (presupuestos y metas): se ejecutan en segundo plano tras el commit
+            eventPublisher.publishEvent(new TransaccionRegistradaEvent(
+                    usuario.getId(), t.getTipo(), t.getCategoria(), t.getMonto()));
 
             return ApiResponse.success("Transacción creada exitosamente", convertirATransaccionDTO(guardada));
         } catch (Exception e) {
@@ -96,7 +140,7 @@ public class TransaccionService {
 
     public ApiResponse<TransaccionDTO> actualizarTransaccion(Long id, TransaccionDTO dto) {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getReferencia();
 
             Transaccion t = transaccionRepository.findById(id).orElse(null);
             if (t == null || !t.getUsuario().getId().equals(usuario.getId())) {
@@ -110,48 +154,35 @@ public class TransaccionService {
                 return ApiResponse.error("El tipo de transacción es obligatorio");
             }
 
-            // Revertir efecto anterior
-            Double saldo = usuario.getSaldo() != null ? usuario.getSaldo() : 0.0;
-            if (t.getTipo() == Transaccion.TipoTransaccion.GASTO) {
-                saldo += (t.getMonto() != null ? t.getMonto() : 0.0);
-            } else {
-                saldo -= (t.getMonto() != null ? t.getMonto() : 0.0);
-            }
-
-            // Aplicar nuevo efecto
-            if (dto.getTipo() == Transaccion.TipoTransaccion.GASTO) {
-                if (saldo < dto.getMonto()) {
-                    // restaurar efecto anterior para no dejar saldo inconsistente
-                    if (t.getTipo() == Transaccion.TipoTransaccion.GASTO) {
-                        saldo -= (t.getMonto() != null ? t.getMonto() : 0.0);
-                    } else {
-                        saldo += (t.getMonto() != null ? t.getMonto() : 0.0);
-                    }
-                    usuario.setSaldo(saldo);
-                    return ApiResponse.error("Saldo insuficiente");
-                }
-                saldo -= dto.getMonto();
-            } else { // INGRESO
-                saldo += dto.getMonto();
+            if (Boolean.TRUE.equals(t.getAnulada())) {
+                return ApiResponse.error("No se puede editar una transacción anulada");
             }
 
-            usuario.setSaldo(saldo);
-            usuarioRepository.save(usuario);
-
-            // Actualizar transacción
-            t.setTipo(dto.getTipo());
-            t.setCategoria(dto.getCategoria());
-            t.setMonto(dto.getMonto());
-            t.setDescripcion(dto.getDescripcion());
-            Transaccion actualizada = transaccionRepository.save(t);
+            // La lectura de arriba no bloquea: la edición se aplica solo si la fila sigue como se leyó,
+            // así dos ediciones o una edición y una anulación simultáneas no revierten el mismo importe dos veces
+            if (transaccionRepository.editar(id, t.getTipo(), t.getMonto(), t.getCategoria(),
+                    dto.getTipo(), dto.getCategoria(), dto.getMonto(), dto.getDescripcion()) == 0) {
+                return ApiResponse.error("La transacción fue modificada o anulada por otra operación; vuelve a intentarlo");
+            }
 
-            // Reglas de negocio
-            if (t.getTipo() == Transaccion.TipoTransaccion.GASTO) {
-                presupuestoService.verificarPresupuesto(usuario.getId(), t.getCategoria(), t.getMonto());
-            } else {
-                metaAhorroService.actualizarMetasConIngreso(usuario.getId(), t.getMonto());
+            // Revertir efecto anterior y aplicar el nuevo en un solo ajuste atómico
+            double delta = efectoEnSaldo(dto.getTipo(), dto.getMonto()) - efectoEnSaldo(t.getTipo(), t.getMonto());
+            if (delta != 0 && usuarioRepository.ajustarSaldo(usuario.getId(), delta) == 0) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return ApiResponse.error("Saldo insuficiente");
             }
 
+            // Mover su importe en el acumulado mensual. La entidad leída no se modifica: ya se escribió
+            // con el UPDATE condicional y un flush suyo repetiría la escritura.
+            Transaccion actualizada = new Transaccion(t.getId(), t.getUsuario(), dto.getTipo(), dto.getCategoria(),
+                    dto.getMonto(), t.getFecha(), dto.getDescripcion(), false);
+            gastoMensualService.revertir(t);
+            gastoMensualService.registrar(actualizada);
+
+            // Reglas de negocio: se ejecutan en segundo plano tras el commit
+            eventPublisher.publishEvent(new TransaccionRegistradaEvent(
+                    usuario.getId(), t.getTipo(), t.getCategoria(), t.getMonto()));
+
             return ApiResponse.success("Transacción actualizada exitosamente", convertirATransaccionDTO(actualizada));
         } catch (Exception e) {
             return ApiResponse.error("Error al actualizar la transacción");
@@ -160,38 +191,65 @@ public class TransaccionService {
 
     public ApiResponse<String> eliminarTransaccion(Long id) {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getReferencia();
 
             Transaccion t = transaccionRepository.findById(id).orElse(null);
             if (t == null || !t.getUsuario().getId().equals(usuario.getId())) {
                 return ApiResponse.error("Transacción no encontrada");
             }
 
+            if (Boolean.TRUE.equals(t.getAnulada())) {
+                return ApiResponse.error("La transacción ya está anulada");
+            }
+
+            // Solo la petición que consigue marcarla como anulada revierte su efecto
+            if (transaccionRepository.anular(id, t.getTipo(), t.getMonto(), t.getCategoria()) == 0) {
+                return ApiResponse.error("La transacción fue modificada o anulada por otra operación; vuelve a intentarlo");
+            }
+
             // Revertir efecto en saldo
-            Double saldo = usuario.getSaldo() != null ? usuario.getSaldo() : 0.0;
-            if (t.getTipo() == Transaccion.TipoTransaccion.GASTO) {
-                saldo += (t.getMonto() != null ? t.getMonto() : 0.0);
-            } else {
-                saldo -= (t.getMonto() != null ? t.getMonto() : 0.0);
+            if (usuarioRepository.ajustarSaldo(usuario.getId(), -efectoEnSaldo(t.getTipo(), t.getMonto())) == 0) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return ApiResponse.error("Saldo insuficiente para anular el ingreso");
             }
-            usuario.setSaldo(saldo);
-            usuarioRepository.save(usuario);
 
-            t.setAnulada(true);
-            transaccionRepository.save(t);
+            gastoMensualService.revertir(t);
             return ApiResponse.success("Transacción anulada exitosamente");
         } catch (Exception e) {
             return ApiResponse.error("Error al eliminar la transacción");
         }
     }
 
-    private Usuario obtenerUsuarioAutenticado() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        return usuarioRepository.findById(userPrincipal.getId())
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+
+    // Variación que produce una transacción sobre el saldo: los gastos restan y los ingresos suman
+    private static double efectoEnSaldo(Transaccion.TipoTransaccion tipo, Double monto) {
+        double valor = monto != null ? monto : 0.0;
+        return tipo == Transaccion.TipoTransaccion.GASTO ? -valor : valor;
+    }
+
+    // El cursor es "fecha|id" de la última fila entregada, en Base64 URL-safe
+    private String codificarCursor(Transaccion t) {
+        String valor = t.getFecha().toString() + "|" + t.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
     }
 
+    private CursorTransaccion decodificarCursor(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf('|');
+            if (separador <= 0) {
+                return null;
+            }
+            LocalDateTime fecha = LocalDateTime.parse(valor.substring(0, separador));
+            Long id = Long.parseLong(valor.substring(separador + 1));
+            return new CursorTransaccion(fecha, id);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private record CursorTransaccion(LocalDateTime fecha, Long id) {}
+
     private TransaccionDTO convertirATransaccionDTO(Transaccion t) {
         TransaccionDTO dto = new TransaccionDTO();
         dto.setId(t.getId());
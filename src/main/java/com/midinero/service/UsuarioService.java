@@ -5,11 +5,13 @@ import com.midinero.dto.CambiarPasswordDTO;
 import com.midinero.dto.UsuarioResponseDTO;
 import com.midinero.dto.UpdateUsuarioDTO;
 import com.midinero.entity.Usuario;
+import com.midinero.exception.ServicioSaturadoException;
+import com.midinero.repository.NotificacionRepository;
 import com.midinero.repository.UsuarioRepository;
-import com.midinero.security.UserPrincipal;
+import com.midinero.security.CustomUserDetailsService;
+import com.midinero.security.UsuarioAutenticadoContext;
+import com.midinero.security.VersionTokenCache;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,15 +20,27 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class UsuarioService {
 
+    @Autowired
+    private UsuarioAutenticadoContext usuarioAutenticado;
+
     @Autowired
     private UsuarioRepository usuarioRepository;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private VersionTokenCache versionTokenCache;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private NotificacionRepository notificacionRepository;
+
     public ApiResponse<UsuarioResponseDTO> obtenerPerfilUsuario() {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getUsuario();
             UsuarioResponseDTO responseDTO = convertirAUsuarioResponseDTO(usuario);
             return ApiResponse.success("Perfil obtenido exitosamente", responseDTO);
         } catch (Exception e) {
@@ -41,7 +55,7 @@ public class UsuarioService {
         }
 
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getUsuario();
 
             // Verificar contraseña actual
             if (!passwordEncoder.matches(cambiarPasswordDTO.getPasswordActual(), usuario.getPassword())) {
@@ -50,9 +64,14 @@ public class UsuarioService {
 
             // Actualizar contraseña
             usuario.setPassword(passwordEncoder.encode(cambiarPasswordDTO.getNuevaPassword()));
+            usuario.incrementarVersionToken(); // revoca los tokens emitidos antes del cambio
             usuarioRepository.save(usuario);
+            versionTokenCache.invalidar(usuario.getId());
+            userDetailsService.invalidar(usuario.getId());
 
             return ApiResponse.success("Contraseña actualizada exitosamente");
+        } catch (ServicioSaturadoException e) {
+            throw e;
         } catch (Exception e) {
             return ApiResponse.error("Error al cambiar la contraseña");
         }
@@ -60,7 +79,7 @@ public class UsuarioService {
 
     public ApiResponse<UsuarioResponseDTO> actualizarPerfil(UpdateUsuarioDTO dto) {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getUsuario();
 
             // Email único (permitiendo que conserve su mismo email)
             if (usuarioRepository.existsByEmailAndIdNot(dto.getEmail(), usuario.getId())) {
@@ -79,6 +98,7 @@ public class UsuarioService {
             }
 
             Usuario guardado = usuarioRepository.save(usuario);
+            userDetailsService.invalidar(guardado.getId());
             UsuarioResponseDTO responseDTO = convertirAUsuarioResponseDTO(guardado);
             return ApiResponse.success("Perfil actualizado exitosamente", responseDTO);
 
@@ -89,8 +109,11 @@ public class UsuarioService {
 
     public ApiResponse<String> eliminarCuenta() {
         try {
-            Usuario usuario = obtenerUsuarioAutenticado();
+            Usuario usuario = usuarioAutenticado.getUsuario();
+            notificacionRepository.eliminarDeUsuario(usuario.getId()); // sin FK: no cae en cascada
             usuarioRepository.delete(usuario);
+            versionTokenCache.invalidar(usuario.getId());
+            userDetailsService.invalidar(usuario.getId());
             return ApiResponse.success("Cuenta eliminada exitosamente");
         } catch (Exception e) {
             return ApiResponse.error("Error al eliminar la cuenta");
@@ -99,12 +122,6 @@ public class UsuarioService {
 
     // ================== Helpers ==================
 
-    private Usuario obtenerUsuarioAutenticado() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        return usuarioRepository.findById(userPrincipal.getId())
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-    }
 
     private UsuarioResponseDTO convertirAUsuarioResponseDTO(Usuario usuario) {
         UsuarioResponseDTO dto = new UsuarioResponseDTO();
@@ -0,0 +1,367 @@
+package com.midinero.carga;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Prueba de carga contra una instancia en marcha (no levanta contexto ni base de datos propia).
+// Abre miles de sesiones STOMP del mismo usuario, dispara notificaciones META_COMPLETADA por REST
+// y mide la latencia de fan-out: desde la petición que la genera hasta que llega a cada sesión.
+// Una parte de las sesiones son clientes lentos: sockets crudos con buffer de recepción mínimo que
+// se suscriben y dejan de leer, para ver qué hace el servidor con ellos (websocket.consumidor-lento.estrategia).
+//
+//   mvn test -Dtest=NotificacionesStompCargaTest -Dcarga.url=http://localhost:10000 \
+//       -Dcarga.email=carga@midinero.test -Dcarga.password=carga123
+//
+// Para que los clientes lentos lleguen a desbordarse, arrancar el servidor con límites bajos y sin
+// rate-limit (cada ronda son dos peticiones REST), p. ej.:
+//   --rate-limit.habilitado=false --websocket.transporte.send-buffer-size-limit=8192
+//   --websocket.transporte.send-time-limit-ms=2000
+// y subir carga.rondas.
+//
+// Cada ronda encola a la vez un mensaje por sesión en el canal de salida, que admite
+// websocket.outbound.queue-capacity + websocket.outbound.max-size (1000 + 8 por defecto) antes de rechazar.
+// Por eso carga.clientes + carga.clientes-lentos viene por debajo de ese total; con más sesiones hay que
+// subir la cola del servidor. Los rechazos se leen de websocket.canal.rechazados (actuator) y son la única
+// pérdida admitida.
+@Tag("carga")
+@EnabledIfSystemProperty(named = "carga.url", matches = ".+")
+class NotificacionesStompCargaTest {
+
+    private static final String URL = System.getProperty("carga.url");
+    private static final String EMAIL = System.getProperty("carga.email", "carga@midinero.test");
+    private static final String PASSWORD = System.getProperty("carga.password", "carga123");
+    private static final int CLIENTES = Integer.getInteger("carga.clientes", 800);
+    private static final int CLIENTES_LENTOS = Integer.getInteger("carga.clientes-lentos", 20);
+    private static final int RONDAS = Integer.getInteger("carga.rondas", 20);
+    private static final int INTERVALO_MS = Integer.getInteger("carga.intervalo-ms", 250);
+    private static final int CONEXIONES_POR_TANDA = 200;
+    private static final String DESTINO = "/user/queue/notifications";
+
+    private final Map<String, Long> inicioPorMeta = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> latenciasNanos = new ConcurrentLinkedQueue<>();
+    private final LongAdder recibidos = new LongAdder();
+
+    @Test
+    void fanOutDeNotificaciones() throws Exception {
+        RestTemplate rest = new RestTemplate();
+        String token = obtenerToken(rest);
+        URI ws = URI.create(URL.replaceFirst("^http", "ws") + "/ws/websocket");
+
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        List<StompSession> sesiones = conectar(stompClient, ws, token);
+
+        List<ClienteLento> lentos = new ArrayList<>();
+        for (int i = 0; i < CLIENTES_LENTOS; i++) {
+            lentos.add(new ClienteLento(ws, token));
+        }
+        // SUBSCRIBE y CONNECT se procesan en el canal de entrada; se deja que se asienten
+        Thread.sleep(2000);
+        double rechazadosAntes = rechazadosEnSalida(rest, token);
+
+        long inicioCarga = System.nanoTime();
+        dispararRondas(rest, token);
+        long esperados = (long) sesiones.size() * RONDAS;
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (recibidos.sum() < esperados && System.nanoTime() < limite) {
+            Thread.sleep(100);
+        }
+        long duracionMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioCarga);
+        long rechazados = Math.round(rechazadosEnSalida(rest, token) - rechazadosAntes);
+
+        int lentosCerrados = 0;
+        List<Integer> leidosPorLento = new ArrayList<>();
+        for (ClienteLento lento : lentos) {
+            ClienteLento.Resultado resultado = lento.drenar();
+            leidosPorLento.add(resultado.mensajes());
+            if (resultado.cerradaPorServidor()) {
+                lentosCerrados++;
+            }
+            lento.close();
+        }
+        sesiones.forEach(StompSession::disconnect);
+        stompClient.stop();
+
+        List<Long> latencias = new ArrayList<>(latenciasNanos);
+        latencias.sort(null);
+        System.out.printf("Sesiones rápidas: %d, rondas: %d, duración: %d ms%n", sesiones.size(), RONDAS, duracionMs);
+        System.out.printf("Mensajes esperados: %d, recibidos: %d, rechazados en el canal de salida: %d%n",
+                esperados, recibidos.sum(), rechazados);
+        System.out.printf("Latencia fan-out (ms): p50=%.1f p95=%.1f p99=%.1f max=%.1f%n",
+                percentilMs(latencias, 0.50), percentilMs(latencias, 0.95),
+                percentilMs(latencias, 0.99), percentilMs(latencias, 1.0));
+        System.out.printf("Clientes lentos: %d, cerrados por el servidor: %d, mensajes leídos: %s%n",
+                lentos.size(), lentosCerrados, leidosPorLento);
+
+        // Los rechazos también pueden ser de mensajes a clientes lentos: cubren como mucho la pérdida observada
+        long perdidos = esperados - recibidos.sum();
+        assertTrue(perdidos <= rechazados,
+                "Las sesiones que leen a tiempo solo pierden mensajes rechazados por la cola de salida llena");
+        if (rechazados == 0) {
+            assertEquals(esperados, recibidos.sum(), "Las sesiones que leen a tiempo no deben perder notificaciones");
+        }
+    }
+
+    private double rechazadosEnSalida(RestTemplate rest, String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        Map<?, ?> metrica = rest.exchange(URL + "/actuator/metrics/websocket.canal.rechazados?tag=canal:salida",
+                HttpMethod.GET, new HttpEntity<>(headers), Map.class).getBody();
+        List<?> medidas = (List<?>) metrica.get("measurements");
+        return ((Number) ((Map<?, ?>) medidas.get(0)).get("value")).doubleValue();
+    }
+
+    private List<StompSession> conectar(WebSocketStompClient stompClient, URI ws, String token) {
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+
+        List<StompSession> sesiones = new ArrayList<>();
+        List<CompletableFuture<StompSession>> tanda = new ArrayList<>();
+        for (int i = 0; i < CLIENTES; i++) {
+            tanda.add(stompClient.connectAsync(ws.toString(), new WebSocketHttpHeaders(), connectHeaders, new ClienteRapido()));
+            if (tanda.size() == CONEXIONES_POR_TANDA || i == CLIENTES - 1) {
+                for (CompletableFuture<StompSession> futura : tanda) {
+                    sesiones.add(futura.orTimeout(30, TimeUnit.SECONDS).join());
+                }
+                tanda.clear();
+            }
+        }
+        return sesiones;
+    }
+
+    // Cada ronda crea una meta de 1 y la completa con un PUT: el PUT envía META_COMPLETADA a todas las sesiones
+    private void dispararRondas(RestTemplate rest, String token) throws InterruptedException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        long ejecucion = System.currentTimeMillis();
+
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            String nombre = "carga-" + ejecucion + "-" + ronda;
+            Map<String, Object> meta = new HashMap<>();
+            meta.put("nombre", nombre);
+            meta.put("montoObjetivo", 1.0);
+            meta.put("montoActual", 0.0);
+            meta.put("fechaInicio", LocalDate.now().toString());
+            meta.put("fechaFin", LocalDate.now().plusDays(30).toString());
+
+            Map<?, ?> creada = rest.exchange(URL + "/api/metas-ahorro", HttpMethod.POST,
+                    new HttpEntity<>(meta, headers), Map.class).getBody();
+            Object id = ((Map<?, ?>) creada.get("data")).get("id");
+
+            meta.put("montoActual", 1.0);
+            inicioPorMeta.put(nombre, System.nanoTime());
+            rest.exchange(URL + "/api/metas-ahorro/" + id, HttpMethod.PUT, new HttpEntity<>(meta, headers), Map.class);
+            Thread.sleep(INTERVALO_MS);
+        }
+    }
+
+    private String obtenerToken(RestTemplate rest) {
+        Map<String, Object> login = Map.of("email", EMAIL, "password", PASSWORD);
+        try {
+            return (String) rest.postForObject(URL + "/api/auth/login", login, Map.class).get("data");
+        } catch (HttpClientErrorException e) {
+            Map<String, Object> registro = Map.of(
+                    "nombreCompleto", "Usuario de carga",
+                    "email", EMAIL,
+                    "password", PASSWORD,
+                    "confirmPassword", PASSWORD);
+            rest.postForObject(URL + "/api/auth/register", registro, Map.class);
+            return (String) rest.postForObject(URL + "/api/auth/login", login, Map.class).get("data");
+        }
+    }
+
+    private static double percentilMs(List<Long> ordenadas, double percentil) {
+        if (ordenadas.isEmpty()) {
+            return Double.NaN;
+        }
+        int indice = (int) Math.ceil(percentil * ordenadas.size()) - 1;
+        return ordenadas.get(Math.max(0, Math.min(indice, ordenadas.size() - 1))) / 1_000_000.0;
+    }
+
+    private class ClienteRapido extends StompSessionHandlerAdapter {
+
+        @Override
+        public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+            session.subscribe(DESTINO, this);
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return Map.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            Long inicio = inicioPorMeta.get(String.valueOf(((Map<?, ?>) payload).get("nombreMeta")));
+            if (inicio != null) {
+                latenciasNanos.add(System.nanoTime() - inicio);
+                recibidos.increment();
+            }
+        }
+    }
+
+    // Cliente WebSocket mínimo sobre un socket bloqueante: tras suscribirse no vuelve a leer hasta drenar(),
+    // así el buffer del kernel se llena y los envíos del servidor a esta sesión se atascan
+    private static final class ClienteLento implements AutoCloseable {
+
+        private static final SecureRandom ALEATORIO = new SecureRandom();
+
+        record Resultado(int mensajes, boolean cerradaPorServidor) {}
+
+        private final Socket socket;
+        private final InputStream entrada;
+        private final OutputStream salida;
+
+        ClienteLento(URI ws, String token) throws IOException {
+            socket = new Socket();
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress(ws.getHost(), ws.getPort()), 5000);
+            socket.setSoTimeout(5000);
+            entrada = socket.getInputStream();
+            salida = socket.getOutputStream();
+
+            byte[] clave = new byte[16];
+            ALEATORIO.nextBytes(clave);
+            String handshake = "GET " + ws.getPath() + " HTTP/1.1\r\n"
+                    + "Host: " + ws.getHost() + ":" + ws.getPort() + "\r\n"
+                    + "Upgrade: websocket\r\n"
+                    + "Connection: Upgrade\r\n"
+                    + "Sec-WebSocket-Key: " + Base64.getEncoder().encodeToString(clave) + "\r\n"
+                    + "Sec-WebSocket-Version: 13\r\n"
+                    + "Sec-WebSocket-Protocol: v12.stomp\r\n\r\n";
+            salida.write(handshake.getBytes(StandardCharsets.US_ASCII));
+            String respuesta = leerCabeceras();
+            if (!respuesta.startsWith("HTTP/1.1 101")) {
+                throw new IOException("Handshake rechazado: " + respuesta.lines().findFirst().orElse(""));
+            }
+
+            enviarTexto("CONNECT\naccept-version:1.2\nhost:" + ws.getHost() + "\nAuthorization:Bearer " + token + "\n\n\0");
+            byte[] connected = leerTrama();
+            if (connected == null || !new String(connected, StandardCharsets.UTF_8).startsWith("CONNECTED")) {
+                throw new IOException("CONNECT rechazado");
+            }
+            enviarTexto("SUBSCRIBE\nid:0\ndestination:" + DESTINO + "\n\n\0");
+        }
+
+        // Lee lo acumulado hasta que el servidor cierra o deja de haber datos
+        Resultado drenar() {
+            int mensajes = 0;
+            try {
+                socket.setSoTimeout(2000);
+                byte[] carga;
+                while ((carga = leerTrama()) != null) {
+                    if (new String(carga, 0, Math.min(carga.length, 7), StandardCharsets.UTF_8).equals("MESSAGE")) {
+                        mensajes++;
+                    }
+                }
+                return new Resultado(mensajes, true);
+            } catch (SocketTimeoutException e) {
+                return new Resultado(mensajes, false);
+            } catch (IOException e) {
+                return new Resultado(mensajes, true);
+            }
+        }
+
+        // Carga de la siguiente trama de texto; null si el servidor cerró (trama close o fin de stream)
+        private byte[] leerTrama() throws IOException {
+            int b0 = entrada.read();
+            int b1 = entrada.read();
+            if (b0 < 0 || b1 < 0) {
+                return null;
+            }
+            long longitud = b1 & 0x7F;
+            if (longitud == 126) {
+                longitud = (entrada.read() << 8) | entrada.read();
+            } else if (longitud == 127) {
+                longitud = 0;
+                for (int i = 0; i < 8; i++) {
+                    longitud = (longitud << 8) | entrada.read();
+                }
+            }
+            byte[] carga = entrada.readNBytes((int) longitud);
+            return (b0 & 0x0F) == 0x8 ? null : carga;
+        }
+
+        private String leerCabeceras() throws IOException {
+            ByteArrayOutputStream cabeceras = new ByteArrayOutputStream();
+            int fin = 0;
+            while (fin < 4) {
+                int b = entrada.read();
+                if (b < 0) {
+                    throw new IOException("Conexión cerrada durante el handshake");
+                }
+                cabeceras.write(b);
+                fin = (b == '\r' || b == '\n') ? fin + 1 : 0;
+            }
+            return cabeceras.toString(StandardCharsets.US_ASCII);
+        }
+
+        // Las tramas del cliente van enmascaradas (RFC 6455)
+        private void enviarTexto(String texto) throws IOException {
+            byte[] datos = texto.getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream trama = new ByteArrayOutputStream();
+            trama.write(0x81);
+            if (datos.length < 126) {
+                trama.write(0x80 | datos.length);
+            } else {
+                trama.write(0x80 | 126);
+                trama.write(datos.length >> 8);
+                trama.write(datos.length & 0xFF);
+            }
+            byte[] mascara = new byte[4];
+            ALEATORIO.nextBytes(mascara);
+            trama.write(mascara, 0, 4);
+            for (int i = 0; i < datos.length; i++) {
+                trama.write(datos[i] ^ mascara[i % 4]);
+            }
+            salida.write(trama.toByteArray());
+            salida.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
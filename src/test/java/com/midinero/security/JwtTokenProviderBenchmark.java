@@ -0,0 +1,75 @@
+package com.midinero.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Coste por petición de verificar el JWT, antes y después de cachear clave y parser.
+// "antes" reproduce lo que hacía JwtAuthenticationFilter: validateToken y luego getUserIdFromToken,
+// cada uno derivando la clave, construyendo un parser y verificando la firma.
+// Se lanza con main() tras mvn test-compile, o con org.openjdk.jmh.Main y el classpath de test.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private static final String SECRETO = "miDineroSecretKeyForJWTTokenGeneration2024";
+
+    private JwtTokenProvider tokenProvider;
+    private String token;
+
+    @Setup
+    public void preparar() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", SECRETO);
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationInMs", 86400000);
+        tokenProvider.init();
+        UserPrincipal principal = UserPrincipal.fromClaims(1L, "benchmark@midinero.com", 0);
+        token = tokenProvider.generateToken(new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    @Benchmark
+    public Long antesDosPasadasSinCache() {
+        // validateToken
+        SecretKey clave = Keys.hmacShaKeyFor(SECRETO.getBytes());
+        Jwts.parserBuilder().setSigningKey(clave).build().parseClaimsJws(token);
+        // getUserIdFromToken
+        SecretKey otraClave = Keys.hmacShaKeyFor(SECRETO.getBytes());
+        Claims claims = Jwts.parserBuilder().setSigningKey(otraClave).build().parseClaimsJws(token).getBody();
+        return Long.parseLong(claims.getSubject());
+    }
+
+    @Benchmark
+    public Long despuesUnaPasada() {
+        Claims claims = tokenProvider.parseToken(token);
+        return Long.parseLong(claims.getSubject());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtTokenProviderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,233 @@
+package com.midinero.security;
+
+import com.midinero.config.WebSocketBrokerConfig;
+import com.midinero.config.WebSocketConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Relay STOMP entre dos nodos contra un broker local (Artemis embebido): una notificación enviada desde
+// un nodo llega a la sesión abierta en el otro, y los clientes no alcanzan los destinos internos del broker.
+// Cada nodo levanta solo la configuración WebSocket; el JWT se simula y su valor es el id del usuario.
+// Está en este paquete para simular JwtAuthenticationFilter.autenticar, que no es público.
+class StompBrokerRelayTest {
+
+    private static final String DESTINO = "/queue/notifications";
+
+    private static EmbeddedActiveMQ broker;
+    private static ConfigurableApplicationContext nodoA;
+    private static ConfigurableApplicationContext nodoB;
+    private static WebSocketStompClient stompClient;
+
+    @BeforeAll
+    static void arrancar() throws Exception {
+        int puertoBroker = puertoLibre();
+        ConfigurationImpl configuracion = new ConfigurationImpl();
+        configuracion.setPersistenceEnabled(false);
+        configuracion.setSecurityEnabled(false);
+        configuracion.setJMXManagementEnabled(false);
+        // Mismas convenciones que RabbitMQ: /queue/ es punto a punto y /topic/ se difunde a todos los nodos
+        configuracion.addAcceptorConfiguration("stomp", "tcp://localhost:" + puertoBroker
+                + "?protocols=STOMP;anycastPrefix=/queue/;multicastPrefix=/topic/");
+        broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(configuracion);
+        broker.start();
+
+        nodoA = arrancarNodo(puertoBroker);
+        nodoB = arrancarNodo(puertoBroker);
+        esperarBroker(nodoA);
+        esperarBroker(nodoB);
+
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new CompositeMessageConverter(
+                List.of(new StringMessageConverter(), new MappingJackson2MessageConverter())));
+    }
+
+    @AfterAll
+    static void detener() throws Exception {
+        if (nodoA != null) {
+            nodoA.close();
+        }
+        if (nodoB != null) {
+            nodoB.close();
+        }
+        if (broker != null) {
+            broker.stop();
+        }
+    }
+
+    @Test
+    void laNotificacionLlegaAlUsuarioConectadoEnOtroNodo() throws Exception {
+        StompSession sesion = conectar(nodoB, 7L, new StompSessionHandlerAdapter() { });
+        CompletableFuture<Map<?, ?>> recibida = new CompletableFuture<>();
+        CountDownLatch suscrito = new CountDownLatch(1);
+        sesion.setAutoReceipt(true);
+        sesion.subscribe("/user" + DESTINO, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                recibida.complete((Map<?, ?>) payload);
+            }
+        }).addReceiptTask(suscrito::countDown);
+        // El RECEIPT lo devuelve el broker: la suscripción ya está registrada allí
+        assertTrue(suscrito.await(10, TimeUnit.SECONDS));
+
+        nodoA.getBean(SimpMessagingTemplate.class)
+                .convertAndSendToUser("7", DESTINO, Map.of("tipo", "META_COMPLETADA"));
+
+        assertEquals("META_COMPLETADA", recibida.get(10, TimeUnit.SECONDS).get("tipo"));
+        sesion.disconnect();
+    }
+
+    @Test
+    void unClienteNoPuedeSuscribirseAUnDifundidoInterno() throws Exception {
+        String error = errorAl(sesion -> sesion.subscribe("/topic/sistema.usuarios-no-resueltos",
+                new StompSessionHandlerAdapter() { }));
+        assertTrue(error.contains("Destino no permitido"), error);
+    }
+
+    @Test
+    void unClienteNoPuedeEnviarAOtroUsuario() throws Exception {
+        String error = errorAl(sesion -> sesion.send("/user/8" + DESTINO, "{\"tipo\":\"FALSA\"}"));
+        assertTrue(error.contains("Destino no permitido"), error);
+    }
+
+    // El interceptor responde con un frame ERROR; se devuelve su cabecera message
+    private String errorAl(Consumer<StompSession> accion) throws Exception {
+        CompletableFuture<String> error = new CompletableFuture<>();
+        StompSession sesion = conectar(nodoA, 7L, new StompSessionHandlerAdapter() {
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                error.complete(String.valueOf(headers.getFirst("message")));
+            }
+        });
+        accion.accept(sesion);
+        return error.get(10, TimeUnit.SECONDS);
+    }
+
+    private StompSession conectar(ConfigurableApplicationContext nodo, Long usuarioId,
+                                  StompSessionHandlerAdapter handler) throws Exception {
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + usuarioId);
+        String url = "ws://localhost:" + nodo.getEnvironment().getProperty("local.server.port") + "/ws/websocket";
+        return stompClient.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders, handler)
+                .get(10, TimeUnit.SECONDS);
+    }
+
+    private static ConfigurableApplicationContext arrancarNodo(int puertoBroker) {
+        return new SpringApplicationBuilder(Nodo.class)
+                // Se registra ya creado para que Spring no intente inyectar sus dependencias
+                .initializers(contexto -> contexto.getBeanFactory()
+                        .registerSingleton("jwtAuthenticationFilter", filtroSimulado()))
+                .properties(
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "websocket.broker.relay.habilitado=true",
+                        "websocket.broker.relay.port=" + puertoBroker)
+                .run();
+    }
+
+    private static JwtAuthenticationFilter filtroSimulado() {
+        JwtAuthenticationFilter filtro = mock(JwtAuthenticationFilter.class);
+        when(filtro.autenticar(anyString())).thenAnswer(invocacion -> {
+            Long id = Long.valueOf(invocacion.getArgument(0, String.class));
+            return new UserPrincipal(id, "usuario" + id + "@midinero.test", "");
+        });
+        return filtro;
+    }
+
+    // La conexión de sistema del relay se abre en segundo plano al arrancar
+    private static void esperarBroker(ConfigurableApplicationContext nodo) throws InterruptedException {
+        StompBrokerRelayMessageHandler relay = nodo.getBean(StompBrokerRelayMessageHandler.class);
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!relay.isBrokerAvailable()) {
+            if (System.nanoTime() > limite) {
+                throw new IllegalStateException("El relay no conectó con el broker");
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private static int puertoLibre() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @Import({WebSocketConfig.class, WebSocketBrokerConfig.class})
+    @ImportAutoConfiguration({
+            PropertyPlaceholderAutoConfiguration.class,
+            ServletWebServerFactoryAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class,
+            WebSocketServletAutoConfiguration.class
+    })
+    static class Nodo {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        StompAutenticacionInterceptor stompAutenticacionInterceptor() {
+            return new StompAutenticacionInterceptor();
+        }
+
+        // El filtro simulado no debe entrar en la cadena de servlets del handshake
+        @Bean
+        FilterRegistrationBean<JwtAuthenticationFilter> filtroJwtDesactivado(JwtAuthenticationFilter filtro) {
+            FilterRegistrationBean<JwtAuthenticationFilter> registro = new FilterRegistrationBean<>(filtro);
+            registro.setEnabled(false);
+            return registro;
+        }
+    }
+}
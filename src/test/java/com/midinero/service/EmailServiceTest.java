@@ -0,0 +1,175 @@
+package com.midinero.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.midinero.entity.EmailOutbox;
+import com.midinero.repository.EmailOutboxRepository;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Despacho del outbox contra un SMTP local (GreenMail); la cola y el lease se simulan
+class EmailServiceTest {
+
+    @RegisterExtension
+    static GreenMailExtension smtp = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private EmailOutboxRepository emailOutboxRepository;
+    private EmailService emailService;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        emailOutboxRepository = mock(EmailOutboxRepository.class);
+        SchedulerLockService schedulerLockService = mock(SchedulerLockService.class);
+        when(schedulerLockService.ejecutarConLease(anyString(), any(), any(), any())).thenAnswer(invocacion -> {
+            invocacion.getArgument(3, Runnable.class).run();
+            return true;
+        });
+
+        emailService = new EmailService();
+        ReflectionTestUtils.setField(emailService, "mailSender", mailSender(smtp.getSmtp().getPort(), 5000));
+        ReflectionTestUtils.setField(emailService, "emailOutboxRepository", emailOutboxRepository);
+        ReflectionTestUtils.setField(emailService, "schedulerLockService", schedulerLockService);
+        ReflectionTestUtils.setField(emailService, "tamanioLote", 20);
+        ReflectionTestUtils.setField(emailService, "maxIntentos", 6);
+        ReflectionTestUtils.setField(emailService, "esperaInicialSegundos", 30L);
+        emailService.cargarPlantillas();
+    }
+
+    @Test
+    void enviaLosPendientesYLosBorraDeLaCola() throws Exception {
+        EmailOutbox pendiente = pendiente(1L, "usuario@midinero.com", "token-de-prueba-1");
+        when(emailOutboxRepository.findListos(eq(EmailOutbox.EstadoEmail.PENDIENTE), any(), any()))
+                .thenReturn(List.of(pendiente));
+
+        emailService.despacharPendientes();
+
+        MimeMessage[] recibidos = smtp.getReceivedMessages();
+        assertEquals(1, recibidos.length);
+        assertEquals("usuario@midinero.com", recibidos[0].getAllRecipients()[0].toString());
+        assertTrue(GreenMailUtil.getBody(recibidos[0]).contains("token-de-prueba-1"));
+        verify(emailOutboxRepository).delete(pendiente);
+    }
+
+    @Test
+    void unEmailEnviadoQueNoSePudoBorrarNoSeReenvia() {
+        EmailOutbox pendiente = pendiente(2L, "otro@midinero.com", "token-de-prueba-2");
+        when(emailOutboxRepository.findListos(eq(EmailOutbox.EstadoEmail.PENDIENTE), any(), any()))
+                .thenReturn(List.of(pendiente));
+        doThrow(new DataAccessResourceFailureException("base caída")).when(emailOutboxRepository).delete(pendiente);
+        doThrow(new DataAccessResourceFailureException("base caída")).when(emailOutboxRepository).deleteById(2L);
+
+        // La fila sigue en la cola en las dos pasadas, pero solo se envía una vez
+        emailService.despacharPendientes();
+        emailService.despacharPendientes();
+
+        assertEquals(1, smtp.getReceivedMessages().length);
+        verify(emailOutboxRepository).deleteById(2L);
+        verify(emailOutboxRepository, never()).save(any());
+    }
+
+    @Test
+    void conElServidorCaidoRegistraElFalloYEspera() throws Exception {
+        int puertoCerrado;
+        try (ServerSocket libre = new ServerSocket(0)) {
+            puertoCerrado = libre.getLocalPort();
+        }
+        ReflectionTestUtils.setField(emailService, "mailSender", mailSender(puertoCerrado, 1000));
+        EmailOutbox pendiente = pendiente(3L, "caido@midinero.com", "token-de-prueba-3");
+        when(emailOutboxRepository.findListos(eq(EmailOutbox.EstadoEmail.PENDIENTE), any(), any()))
+                .thenReturn(List.of(pendiente));
+
+        emailService.despacharPendientes();
+
+        EmailOutbox guardado = fallaRegistrada();
+        assertEquals(1, guardado.getIntentos());
+        assertEquals(EmailOutbox.EstadoEmail.PENDIENTE, guardado.getEstado());
+        assertTrue(guardado.getProximoIntento().isAfter(LocalDateTime.now().plusSeconds(20)));
+        verify(emailOutboxRepository, never()).delete(any());
+    }
+
+    @Test
+    void unServidorQueNoRespondeSeCortaPorTimeout() throws Exception {
+        // Acepta la conexión pero nunca envía el saludo SMTP
+        try (ServerSocket mudo = new ServerSocket(0)) {
+            List<Socket> aceptadas = Collections.synchronizedList(new ArrayList<>());
+            Thread aceptador = new Thread(() -> {
+                try {
+                    while (!mudo.isClosed()) {
+                        aceptadas.add(mudo.accept());
+                    }
+                } catch (Exception ignorada) {
+                    // el socket se cerró al terminar el test
+                }
+            });
+            aceptador.setDaemon(true);
+            aceptador.start();
+
+            ReflectionTestUtils.setField(emailService, "mailSender", mailSender(mudo.getLocalPort(), 1000));
+            EmailOutbox pendiente = pendiente(4L, "lento@midinero.com", "token-de-prueba-4");
+            when(emailOutboxRepository.findListos(eq(EmailOutbox.EstadoEmail.PENDIENTE), any(), any()))
+                    .thenReturn(List.of(pendiente));
+
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> emailService.despacharPendientes());
+
+            assertEquals(1, fallaRegistrada().getIntentos());
+            synchronized (aceptadas) {
+                for (Socket conexion : aceptadas) {
+                    conexion.close();
+                }
+            }
+        }
+    }
+
+    private EmailOutbox fallaRegistrada() {
+        ArgumentCaptor<EmailOutbox> guardado = ArgumentCaptor.forClass(EmailOutbox.class);
+        verify(emailOutboxRepository).save(guardado.capture());
+        return guardado.getValue();
+    }
+
+    private static EmailOutbox pendiente(Long id, String destinatario, String token) {
+        EmailOutbox email = new EmailOutbox(destinatario, EmailOutbox.Plantilla.RECUPERACION_PASSWORD, token);
+        email.setId(id);
+        return email;
+    }
+
+    private static JavaMailSenderImpl mailSender(int puerto, int timeoutMs) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(puerto);
+        Properties propiedades = new Properties();
+        propiedades.put("mail.smtp.from", "no-reply@midinero.com");
+        propiedades.put("mail.smtp.connectiontimeout", String.valueOf(timeoutMs));
+        propiedades.put("mail.smtp.timeout", String.valueOf(timeoutMs));
+        propiedades.put("mail.smtp.writetimeout", String.valueOf(timeoutMs));
+        sender.setJavaMailProperties(propiedades);
+        return sender;
+    }
+}
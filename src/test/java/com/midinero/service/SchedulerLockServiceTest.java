@@ -0,0 +1,160 @@
+package com.midinero.service;
+
+import com.midinero.entity.SchedulerLock;
+import com.midinero.repository.SchedulerLockRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Leases de scheduler_lock contra H2 en modo MySQL (las consultas nativas usan INSERT IGNORE).
+// Varias instancias del servicio hacen de réplicas que comparten la misma tabla.
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:leases;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SchedulerLockServiceTest {
+
+    private static final int REPLICAS = 4;
+
+    @Autowired
+    private SchedulerLockRepository schedulerLockRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<SchedulerLockService> replicas = new ArrayList<>();
+
+    @BeforeEach
+    void crearReplicas() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> schedulerLockRepository.deleteAll());
+        replicas.clear();
+        for (int i = 0; i < REPLICAS; i++) {
+            replicas.add(new SchedulerLockService(schedulerLockRepository, transactionManager, new SimpleMeterRegistry()));
+        }
+    }
+
+    @Test
+    void soloUnaReplicaEjecutaLaTareaPorIntervalo() throws Exception {
+        AtomicInteger ejecuciones = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        CountDownLatch perdedores = new CountDownLatch(REPLICAS - 1);
+        ExecutorService hilos = Executors.newFixedThreadPool(REPLICAS);
+        try {
+            List<Future<Boolean>> resultados = new ArrayList<>();
+            for (SchedulerLockService replica : replicas) {
+                resultados.add(hilos.submit(() -> {
+                    salida.await();
+                    boolean ejecutada = replica.ejecutarConLease("tarea-horaria", Duration.ofMinutes(30), Duration.ofMinutes(55), () -> {
+                        ejecuciones.incrementAndGet();
+                        // La tarea sigue en curso mientras las demás réplicas intentan tomar el lease
+                        esperar(perdedores);
+                    });
+                    if (!ejecutada) {
+                        perdedores.countDown();
+                    }
+                    return ejecutada;
+                }));
+            }
+            salida.countDown();
+
+            int tomados = 0;
+            for (Future<Boolean> resultado : resultados) {
+                if (resultado.get(30, TimeUnit.SECONDS)) {
+                    tomados++;
+                }
+            }
+            assertEquals(1, tomados);
+            assertEquals(1, ejecuciones.get());
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        // Terminada la tarea, el mínimo de 55 min impide repetirla en la misma hora
+        for (SchedulerLockService replica : replicas) {
+            assertFalse(replica.ejecutarConLease("tarea-horaria", Duration.ofMinutes(30), Duration.ofMinutes(55),
+                    ejecuciones::incrementAndGet));
+        }
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    void registraQuienCuandoYCuantoDuro() {
+        LocalDateTime antes = LocalDateTime.now().minusSeconds(1);
+
+        assertTrue(replicas.get(0).ejecutarConLease("tarea-registrada", Duration.ofMinutes(5), Duration.ZERO,
+                () -> dormir(50)));
+
+        SchedulerLock lease = schedulerLockRepository.findById("tarea-registrada").orElseThrow();
+        assertNotNull(lease.getBloqueadoPor());
+        assertTrue(lease.getBloqueadoEn().isAfter(antes));
+        assertNotNull(lease.getDuracionMs());
+        assertTrue(lease.getDuracionMs() >= 50);
+        // Con mínimo cero el lease vence al terminar la tarea
+        assertFalse(lease.getBloqueadoHasta().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void conMinimoCeroOtraReplicaPuedeEjecutarlaDespues() {
+        assertTrue(replicas.get(0).ejecutarConLease("tarea-frecuente", Duration.ofMinutes(5), Duration.ZERO, () -> {}));
+        dormir(10);
+        assertTrue(replicas.get(1).ejecutarConLease("tarea-frecuente", Duration.ofMinutes(5), Duration.ZERO, () -> {}));
+    }
+
+    @Test
+    void unLeaseVencidoDeUnNodoCaidoSeRetoma() {
+        // Un nodo tomó el lease y murió sin liberarlo: bloqueado_hasta quedó en el pasado
+        LocalDateTime hace = LocalDateTime.now().minusMinutes(10);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                schedulerLockRepository.crear("tarea-abandonada", "nodo-caido:1", hace, hace.plusMinutes(5)));
+
+        AtomicInteger ejecuciones = new AtomicInteger();
+        assertTrue(replicas.get(0).ejecutarConLease("tarea-abandonada", Duration.ofMinutes(5), Duration.ZERO,
+                ejecuciones::incrementAndGet));
+        assertEquals(1, ejecuciones.get());
+        assertFalse("nodo-caido:1".equals(schedulerLockRepository.findById("tarea-abandonada").orElseThrow().getBloqueadoPor()));
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}